@@ -0,0 +1,162 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link HeadScriptInjector} with the way responses used to be rewritten: reading the whole body,
+ * decoding it, finding the head with a regex, and encoding the result again.
+ * <p>
+ * Before measuring, the injector's output is checked against the old rewrite for documents with a
+ * <code>&lt;head&gt;</code>, <code>&lt;html&gt;</code>, <code>&lt;body&gt;</code>, or no tag at all,
+ * in UTF-8 and UTF-16, and with the document read a few bytes at a time so tags are split across reads.
+ * <p>
+ * Build with <code>mvn -Pbenchmarks package</code> and run with
+ * <code>java -cp target/jbrowserdriver-&lt;version&gt;-uberjar.jar org.openjdk.jmh.Main HeadScriptInjector</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadScriptInjectorBenchmark {
+  private static final Pattern head = Pattern.compile("<head\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+  private static final Pattern html = Pattern.compile("<html\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+  private static final Pattern body = Pattern.compile("<body\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+  private static final String SCRIPT = "<script>window.injected = true;</script>";
+
+  @Param({ "16384", "1048576" })
+  public int size;
+
+  @Param({ "utf-8", "utf-16" })
+  public String charset;
+
+  private byte[] document;
+  private final byte[] sink = new byte[8192];
+
+  @Setup
+  public void setUp() throws IOException {
+    verify();
+    StringBuilder builder = new StringBuilder("<!DOCTYPE html>\n<html lang=\"en\"><head><title>Benchmark</title></head><body>\n");
+    while (builder.length() < size) {
+      builder.append("<p class=\"item\">Lorem ipsum dolor sit amet, consectetur adipiscing elit.</p>\n");
+    }
+    builder.append("</body></html>");
+    document = builder.toString().getBytes(charset);
+  }
+
+  @Benchmark
+  public int injector() throws IOException {
+    int total = 0;
+    try (InputStream in = new HeadScriptInjector(new ByteArrayInputStream(document), SCRIPT, charset)) {
+      for (int read; (read = in.read(sink)) != -1;) {
+        total += read;
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  public byte[] regex() throws IOException {
+    return rewrite(IOUtils.toByteArray(new ByteArrayInputStream(document)), charset);
+  }
+
+  /**
+   * The rewrite that used to be done on the whole response body.
+   */
+  private static byte[] rewrite(byte[] content, String charset) throws IOException {
+    String decoded = new String(content, charset);
+    String intercepted;
+    Matcher matcher = head.matcher(decoded);
+    if (matcher.find()) {
+      intercepted = matcher.replaceFirst(matcher.group(0) + SCRIPT);
+    } else if ((matcher = html.matcher(decoded)).find()) {
+      intercepted = matcher.replaceFirst(matcher.group(0) + "<head>" + SCRIPT + "</head>");
+    } else if (body.matcher(decoded).find()) {
+      intercepted = "<html><head>" + SCRIPT + "</head>" + decoded + "</html>";
+    } else {
+      intercepted = decoded;
+    }
+    return intercepted.getBytes(charset);
+  }
+
+  private static void verify() throws IOException {
+    String[] documents = new String[] {
+        "<!DOCTYPE html><html><HEAD class=\"x\"><title>t</title></head><body>b</body></html>",
+        "<html lang=\"en\"><body>b</body></html>",
+        "<div>before</div><BODY onload=\"f()\">b</body>",
+        "plain text <header>not a head</header> <htmlx> <bodyguard>",
+        "<html><headless></headless><head\n>é中</head></html>" };
+    for (String charset : new String[] { "utf-8", "utf-16" }) {
+      for (String document : documents) {
+        byte[] bytes = document.getBytes(charset);
+        byte[] expected = rewrite(bytes, charset);
+        for (int chunk : new int[] { 1, 3, 7, Integer.MAX_VALUE }) {
+          byte[] actual;
+          try (InputStream in = new HeadScriptInjector(new ChunkedInputStream(bytes, chunk), SCRIPT, charset)) {
+            actual = IOUtils.toByteArray(in);
+          }
+          if (!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException("Injector output differs for " + charset
+                + " document read " + chunk + " bytes at a time: " + document
+                + "\nExpected: " + new String(expected, charset) + "\nActual:   " + new String(actual, charset));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns at most the given number of bytes from each read.
+   */
+  private static class ChunkedInputStream extends ByteArrayInputStream {
+    private final int chunk;
+
+    ChunkedInputStream(byte[] bytes, int chunk) {
+      super(bytes);
+      this.chunk = chunk;
+    }
+
+    @Override
+    public synchronized int read(byte[] bytes, int off, int len) {
+      return super.read(bytes, off, Math.min(len, chunk));
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link StatusMonitor} with the monitor it replaced, which guarded plain collections with one lock,
+ * while several threads use it at once: connection threads registering requests as the FX thread
+ * and the driver look up statuses.
+ * <p>
+ * The connections are for URLs marked as discarded, so looking up their status doesn't touch the network.
+ * <p>
+ * Build with <code>mvn -Pbenchmarks package</code> and run with
+ * <code>java -cp target/jbrowserdriver-&lt;version&gt;-uberjar.jar org.openjdk.jmh.Main StatusMonitor</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusMonitorBenchmark {
+  private static final int URLS = 1024;
+
+  @Param({ "concurrent", "synchronized" })
+  public String monitor;
+
+  private Monitor subject;
+  private String[] urls;
+  private URL[] parsed;
+  private StreamConnection[] conns;
+
+  /**
+   * Each thread walks the URLs from its own position.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next;
+
+    int next() {
+      next = (next + 1) % URLS;
+      return next;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    Session session = Session.create();
+    subject = "concurrent".equals(monitor) ? new Current() : new Legacy();
+    urls = new String[URLS];
+    parsed = new URL[URLS];
+    conns = new StreamConnection[URLS];
+    for (int i = 0; i < URLS; i++) {
+      urls[i] = "http://example.com/resource/" + i + ".js";
+      parsed[i] = new URL(urls[i]);
+      session.statusMonitor().addDiscarded(urls[i]);
+      conns[i] = new StreamConnection(parsed[i]);
+      conns[i].getResponseCode();
+      subject.addPrimaryDocument(i % 8 == 0, urls[i]);
+      subject.monitor(urls[i]);
+      subject.monitor(parsed[i], conns[i]);
+    }
+  }
+
+  /**
+   * The old monitor's list of started URLs grew until the page navigated, so it's cleared between iterations.
+   */
+  @Setup(Level.Iteration)
+  public void navigate() {
+    subject.navigated();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public int status(Cursor cursor) {
+    return subject.status(urls[cursor.next()]);
+  }
+
+  @Benchmark
+  @Group("page")
+  @GroupThreads(3)
+  public void page_connections(Cursor cursor) {
+    int i = cursor.next();
+    subject.monitor(urls[i]);
+    subject.monitor(parsed[i], conns[i]);
+  }
+
+  @Benchmark
+  @Group("page")
+  @GroupThreads(1)
+  public boolean page_lookups(Cursor cursor) {
+    int i = cursor.next();
+    return subject.isPrimaryDocument(false, urls[i]) | subject.isDiscarded(urls[i]) | subject.status(urls[i]) == 204;
+  }
+
+  private interface Monitor {
+    boolean isPrimaryDocument(boolean requireMainFrame, String url);
+
+    boolean isDiscarded(String url);
+
+    void monitor(String url);
+
+    void addPrimaryDocument(boolean mainFrame, String url);
+
+    void monitor(URL url, StreamConnection conn);
+
+    int status(String url);
+
+    void navigated();
+  }
+
+  private static class Current implements Monitor {
+    private final StatusMonitor monitor = new StatusMonitor();
+
+    @Override
+    public boolean isPrimaryDocument(boolean requireMainFrame, String url) {
+      return monitor.isPrimaryDocument(requireMainFrame, url);
+    }
+
+    @Override
+    public boolean isDiscarded(String url) {
+      return monitor.isDiscarded(url);
+    }
+
+    @Override
+    public void monitor(String url) {
+      monitor.monitor(url);
+    }
+
+    @Override
+    public void addPrimaryDocument(boolean mainFrame, String url) {
+      monitor.addPrimaryDocument(mainFrame, url);
+    }
+
+    @Override
+    public void monitor(URL url, StreamConnection conn) {
+      monitor.monitor(url, conn);
+    }
+
+    @Override
+    public int status(String url) {
+      return monitor.status(url);
+    }
+
+    @Override
+    public void navigated() {}
+  }
+
+  /**
+   * The monitor as it was before it used concurrent maps.
+   */
+  private static class Legacy implements Monitor {
+    private final Object lock = new Object();
+    private final Map<String, StreamConnection> connections = new HashMap<String, StreamConnection>();
+    private final Map<String, Boolean> primaryDocuments = new HashMap<String, Boolean>();
+    private final Set<String> discarded = new HashSet<String>();
+    private final List<String> startedUrls = new ArrayList<String>();
+
+    private static String canonicalUrl(String url) {
+      if (url == null) {
+        return null;
+      }
+      int fragmentIndex = url.indexOf("#");
+      url = fragmentIndex > -1 ? url.substring(0, fragmentIndex) : url;
+      return url.endsWith("/") ? url : url + "/";
+    }
+
+    @Override
+    public boolean isPrimaryDocument(boolean requireMainFrame, String url) {
+      synchronized (lock) {
+        String canonicalUrl = canonicalUrl(url);
+        return primaryDocuments.containsKey(canonicalUrl)
+            && (!requireMainFrame || primaryDocuments.get(canonicalUrl));
+      }
+    }
+
+    @Override
+    public boolean isDiscarded(String url) {
+      synchronized (lock) {
+        return discarded.contains(canonicalUrl(url));
+      }
+    }
+
+    @Override
+    public void monitor(String url) {
+      synchronized (lock) {
+        startedUrls.add(canonicalUrl(url));
+      }
+    }
+
+    @Override
+    public void addPrimaryDocument(boolean mainFrame, String url) {
+      synchronized (lock) {
+        primaryDocuments.put(canonicalUrl(url), mainFrame);
+      }
+    }
+
+    @Override
+    public void monitor(URL url, StreamConnection conn) {
+      synchronized (lock) {
+        connections.put(canonicalUrl(url.toExternalForm()), conn);
+      }
+    }
+
+    @Override
+    public int status(String url) {
+      StreamConnection conn = null;
+      synchronized (lock) {
+        conn = connections.get(canonicalUrl(url));
+        for (int i = startedUrls.size() - 1; conn == null && i > -1; i--) {
+          conn = connections.get(startedUrls.get(i));
+        }
+      }
+      int code = 499;
+      if (conn != null) {
+        try {
+          code = conn.getResponseCode();
+          code = code <= 0 ? 499 : code;
+        } catch (Throwable t) {
+          LogsServer.instance().exception(t);
+        }
+      }
+      return code;
+    }
+
+    @Override
+    public void navigated() {
+      synchronized (lock) {
+        startedUrls.clear();
+      }
+    }
+  }
+}
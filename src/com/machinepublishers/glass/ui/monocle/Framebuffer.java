@@ -32,22 +32,41 @@ import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A ByteBuffer used as a rendering target for window composition. Stored as
  * 32-bit and can write to a 16-bit or 32-bit target.
+ * <p>
+ * Uploads are composed a row at a time with bulk buffer operations. Rows whose
+ * pixels don't change aren't written, and only the area which has been drawn
+ * to since the last clear is cleared, so frames which repaint the same content
+ * cost reads only.
  */
 class Framebuffer {
 
+    private static final AtomicLong framesComposed = new AtomicLong();
+    private static final AtomicLong framesUnchanged = new AtomicLong();
+    private static final AtomicLong pixelsCopied = new AtomicLong();
+    private static final AtomicLong pixelsBlended = new AtomicLong();
+
     private ByteBuffer bb;
     private int width;
     private int height;
     private int byteDepth;
     private boolean receivedData;
+    private boolean damaged;
     private ByteBuffer clearBuffer;
     private ByteBuffer lineByteBuffer;
     private Buffer linePixelBuffer;
     private int address;
+    private int[] srcRow;
+    private int[] dstRow;
+    // bounds of the area drawn to since the last clear; empty when x0 >= x1
+    private int contentX0;
+    private int contentY0;
+    private int contentX1;
+    private int contentY1;
 
     Framebuffer(ByteBuffer bb, int width, int height, int depth, boolean clear) {
         this.bb = bb;
@@ -55,8 +74,41 @@ class Framebuffer {
         this.height = height;
         this.byteDepth = depth >>> 3;
         if (clear) {
-            clearBuffer = ByteBuffer.allocate(width * 4);
+            clearBuffer = ByteBuffer.allocateDirect(width * 4);
         }
+        this.srcRow = new int[width];
+        this.dstRow = new int[width];
+        // the buffer may hold anything until it's first cleared
+        this.contentX1 = width;
+        this.contentY1 = height;
+    }
+
+    /**
+     * @return number of frames in which at least one pixel changed
+     */
+    static long getFramesComposed() {
+        return framesComposed.get();
+    }
+
+    /**
+     * @return number of frames which were uploaded but didn't change any pixels
+     */
+    static long getFramesUnchanged() {
+        return framesUnchanged.get();
+    }
+
+    /**
+     * @return number of pixels written without blending
+     */
+    static long getPixelsCopied() {
+        return pixelsCopied.get();
+    }
+
+    /**
+     * @return number of pixels blended over existing pixels
+     */
+    static long getPixelsBlended() {
+        return pixelsBlended.get();
     }
 
     ByteBuffer getBuffer() {
@@ -65,7 +117,15 @@ class Framebuffer {
     }
 
     void reset() {
+        if (receivedData) {
+            if (damaged) {
+                framesComposed.incrementAndGet();
+            } else {
+                framesUnchanged.incrementAndGet();
+            }
+        }
         receivedData = false;
+        damaged = false;
     }
 
     void setStartAddress(int address) {
@@ -73,13 +133,22 @@ class Framebuffer {
     }
 
     void clearBufferContents() {
-        bb.clear();
-        bb.position(address);
-        bb.limit(address + width * height * 4);
-        for (int i = 0; i < height; i++) {
-            clearBuffer.clear();
-            bb.put(clearBuffer);
+        if (contentX0 >= contentX1 || contentY0 >= contentY1) {
+            return;
+        }
+        ByteBuffer dst = bb.duplicate();
+        ByteBuffer zeros = clearBuffer.duplicate();
+        int rowBytes = (contentX1 - contentX0) * 4;
+        for (int y = contentY0; y < contentY1; y++) {
+            int offset = address + (y * width + contentX0) * 4;
+            dst.limit(offset + rowBytes);
+            dst.position(offset);
+            zeros.clear();
+            zeros.limit(rowBytes);
+            dst.put(zeros);
         }
+        contentX0 = contentY0 = contentX1 = contentY1 = 0;
+        damaged = true;
     }
 
     boolean hasReceivedData() {
@@ -108,90 +177,109 @@ class Framebuffer {
             pH = height - pY;
         }
         int alphaMultiplier = Math.round(Math.min(alpha, 1f) * 256f);
-        if (pW < 0 || pH < 0 || alphaMultiplier <= 0) {
+        if (pW <= 0 || pH <= 0 || alphaMultiplier <= 0) {
             return;
         }
         // If clearBuffer is set, clear the buffer on the first upload of each
-        // frame, unless that upload already overwrites the whole buffer.
+        // frame, unless that upload already overwrites everything drawn so far.
         if (!receivedData && clearBuffer != null) {
-            if (alphaMultiplier < 256 || start != 0 || pW != width || pH != height) {
+            if (alphaMultiplier < 256 || pX > contentX0 || pY > contentY0
+                    || pX + pW < contentX1 || pY + pH < contentY1) {
                 clearBufferContents();
             }
         }
-        bb.position(address + pX * 4 + pY * width * 4);
-        bb.limit(bb.capacity());
+        ByteBuffer dstBytes = bb.duplicate().order(bb.order());
+        dstBytes.clear();
+        dstBytes.position(address);
+        IntBuffer dstPixels = dstBytes.asIntBuffer();
         // TODO: use a back buffer in Java when double buffering is not available in /dev/fb0
-        // TODO: move alpha blending into native
         if (receivedData) {
-            IntBuffer srcPixels;
-            if (src instanceof IntBuffer) {
-                srcPixels = ((IntBuffer) src);
-            } else {
-                srcPixels = ((ByteBuffer) src).asIntBuffer();
-            }
-            IntBuffer dstPixels = bb.asIntBuffer();
+            IntBuffer srcPixels = src instanceof IntBuffer
+                    ? ((IntBuffer) src).duplicate()
+                    : ((ByteBuffer) src).duplicate().order(((ByteBuffer) src).order()).asIntBuffer();
+            srcPixels.clear();
+            int srcMultiplier = alphaMultiplier >= 255 ? 256 : alphaMultiplier;
             for (int i = 0; i < pH; i++) {
-                int dstPosition = i * width;
-                int srcPosition = (start + i * stride) >> 2;
-                if (alphaMultiplier >= 255) {
-                    for (int j = 0; j < pW; j++) {
-                        int srcPixel = srcPixels.get(srcPosition + j);
-                        int srcA = (srcPixel >> 24) & 0xff;
-                        if (srcA == 0xff) {
-                            dstPixels.put(dstPosition + j, srcPixel);
-                        } else {
-                            dstPixels.put(dstPosition + j,
-                                          blend32(srcPixel,
-                                                  dstPixels.get(dstPosition + j),
-                                                  256));
-                        }
-                    }
-                } else {
-                    for (int j = 0; j < pW; j++) {
-                        dstPixels.put(dstPosition + j,
-                                      blend32(srcPixels.get(srcPosition + j),
-                                              dstPixels.get(dstPosition + j),
-                                              alphaMultiplier));
-                    }
+                int dstPosition = (pY + i) * width + pX;
+                srcPixels.position((start + i * stride) >> 2);
+                srcPixels.get(srcRow, 0, pW);
+                dstPixels.position(dstPosition);
+                dstPixels.get(dstRow, 0, pW);
+                if (blendRow(srcRow, dstRow, pW, srcMultiplier)) {
+                    dstPixels.position(dstPosition);
+                    dstPixels.put(dstRow, 0, pW);
+                    damaged = true;
                 }
             }
+            pixelsBlended.addAndGet((long) pW * pH);
         } else {
-            if (pW == width) {
-                if (src instanceof ByteBuffer) {
-                    src.position(start);
-                    src.limit(stride * pH);
-                    bb.put((ByteBuffer) src);
-                } else {
-                    IntBuffer srcPixels = (IntBuffer) src;
-                    srcPixels.position(start >> 2);
-                    srcPixels.limit((stride * pH) >> 2);
-                    bb.asIntBuffer().put(srcPixels);
+            int rowBytes = pW * 4;
+            if (src instanceof ByteBuffer) {
+                ByteBuffer srcBytes = ((ByteBuffer) src).duplicate();
+                for (int i = 0; i < pH; i++) {
+                    int dstOffset = address + ((pY + i) * width + pX) * 4;
+                    dstBytes.limit(dstOffset + rowBytes);
+                    dstBytes.position(dstOffset);
+                    srcBytes.limit(start + i * stride + rowBytes);
+                    srcBytes.position(start + i * stride);
+                    if (!srcBytes.equals(dstBytes)) {
+                        dstBytes.put(srcBytes);
+                        damaged = true;
+                        pixelsCopied.addAndGet(pW);
+                    }
                 }
             } else {
-                if (src instanceof ByteBuffer) {
-                    for (int i = 0; i < pH; i++) {
-                        bb.position(address + pX * 4 + (pY + i) * width * 4);
-                        src.limit(start + i * stride + pW * 4);
-                        src.position(start + i * stride);
-                        bb.put((ByteBuffer) src);
-                    }
-                } else {
-                    bb.position(address);
-                    bb.limit(address + width * height * 4);
-                    IntBuffer dstPixels = bb.asIntBuffer();
-                    IntBuffer srcPixels = (IntBuffer) src;
-                    for (int i = 0; i < pH; i++) {
-                        dstPixels.position(pX + (pY + i) * width);
-                        srcPixels.limit(pW + ((start + i * stride) >> 2));
-                        srcPixels.position((start + i * stride) >> 2);
-                        dstPixels.put((IntBuffer) src);
+                IntBuffer srcPixels = ((IntBuffer) src).duplicate();
+                for (int i = 0; i < pH; i++) {
+                    int dstPosition = (pY + i) * width + pX;
+                    dstPixels.limit(dstPosition + pW);
+                    dstPixels.position(dstPosition);
+                    srcPixels.limit(((start + i * stride) >> 2) + pW);
+                    srcPixels.position((start + i * stride) >> 2);
+                    if (!srcPixels.equals(dstPixels)) {
+                        dstPixels.put(srcPixels);
+                        damaged = true;
+                        pixelsCopied.addAndGet(pW);
                     }
                 }
             }
         }
+        if (contentX0 >= contentX1 || contentY0 >= contentY1) {
+            contentX0 = pX;
+            contentY0 = pY;
+            contentX1 = pX + pW;
+            contentY1 = pY + pH;
+        } else {
+            contentX0 = Math.min(contentX0, pX);
+            contentY0 = Math.min(contentY0, pY);
+            contentX1 = Math.max(contentX1, pX + pW);
+            contentY1 = Math.max(contentY1, pY + pH);
+        }
         receivedData = true;
     }
 
+    /**
+     * Blends a row of source pixels over a row of destination pixels in place.
+     * Works on plain arrays so the loop stays simple enough for the JIT to optimize.
+     *
+     * @return whether any destination pixel changed
+     */
+    private static boolean blendRow(int[] src, int[] dst, int length, int alphaMultiplier) {
+        boolean changed = false;
+        for (int j = 0; j < length; j++) {
+            int srcPixel = src[j];
+            int dstPixel = dst[j];
+            int blended = alphaMultiplier == 256 && (srcPixel >>> 24) == 0xff
+                    ? srcPixel
+                    : blend32(srcPixel, dstPixel, alphaMultiplier);
+            if (blended != dstPixel) {
+                dst[j] = blended;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
     private static int blend32(int src, int dst, int alphaMultiplier) {
         int srcA = (((src >> 24) & 0xff) * alphaMultiplier) >> 8;
         int srcR = (src >> 16) & 0xff;
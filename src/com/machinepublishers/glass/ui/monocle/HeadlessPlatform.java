@@ -52,4 +52,32 @@ public class HeadlessPlatform extends NativePlatform {
         return new HeadlessScreen();
     }
 
+    /**
+     * @return number of frames composed into the headless screen in which at least one pixel changed
+     */
+    public static long getFramesComposed() {
+        return Framebuffer.getFramesComposed();
+    }
+
+    /**
+     * @return number of frames uploaded to the headless screen which didn't change any pixels
+     */
+    public static long getFramesUnchanged() {
+        return Framebuffer.getFramesUnchanged();
+    }
+
+    /**
+     * @return number of pixels copied into the headless screen without blending
+     */
+    public static long getPixelsCopied() {
+        return Framebuffer.getPixelsCopied();
+    }
+
+    /**
+     * @return number of pixels blended over existing pixels of the headless screen
+     */
+    public static long getPixelsBlended() {
+        return Framebuffer.getPixelsBlended();
+    }
+
 }
@@ -69,7 +69,7 @@ class HeadlessScreen implements NativeScreen {
                         + geometry + "'");
             }
         }
-        ByteBuffer bb = ByteBuffer.allocate(width * height * (depth >>> 3));
+        ByteBuffer bb = ByteBuffer.allocateDirect(width * height * (depth >>> 3));
         bb.order(ByteOrder.nativeOrder());
         fb = new Framebuffer(bb, width, height, depth, true);
     }
@@ -27,6 +27,7 @@ package com.machinepublishers.glass.ui.monocle;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 
 import com.sun.glass.ui.Pixels;
@@ -50,7 +51,17 @@ final class MonoclePixels extends Pixels {
   }
 
   private void _copyPixels(Buffer dst, Buffer src, int size) {
-    throw new UnsupportedOperationException("not implemented");
+    ByteBuffer out = (ByteBuffer) dst;
+    if (src instanceof ByteBuffer) {
+      ByteBuffer in = ((ByteBuffer) src).duplicate();
+      in.limit(in.position() + size * 4);
+      out.put(in);
+    } else {
+      //int pixels hold BGRA bytes in little-endian order
+      IntBuffer in = ((IntBuffer) src).duplicate();
+      in.limit(in.position() + size);
+      out.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(in);
+    }
   }
 
   @Override
@@ -65,17 +76,7 @@ final class MonoclePixels extends Pixels {
       this.bytes.rewind();
     } else {
       this.ints.rewind();
-      if (this.ints.isDirect()) {
-        _copyPixels(bb, this.ints, getWidth() * getHeight());
-      } else {
-        for (int i = 0; i < this.ints.capacity(); i++) {
-          int data = this.ints.get();
-          bb.put((byte) ((data) & 0xff));
-          bb.put((byte) ((data >> 8) & 0xff));
-          bb.put((byte) ((data >> 16) & 0xff));
-          bb.put((byte) ((data >> 24) & 0xff));
-        }
-      }
+      _copyPixels(bb, this.ints, getWidth() * getHeight());
       this.ints.rewind();
     }
     bb.rewind();
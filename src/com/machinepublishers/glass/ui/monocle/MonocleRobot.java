@@ -205,10 +205,11 @@ class MonocleRobot extends Robot {
             IntBuffer ret = IntBuffer.allocate(width * height);
             int rowStop = Math.min(y + height, scrHeight);
             int colStop = Math.min(x + width, scrWidth);
-            for (int row = y; row < rowStop; row++) {
-                for (int col = x; col < colStop; col++) {
-                    ret.put(buffer.get(row * scrWidth + col));
-                }
+            for (int row = y; row < rowStop && colStop > x; row++) {
+                buffer.limit(row * scrWidth + colStop);
+                buffer.position(row * scrWidth + x);
+                ret.position((row - y) * width);
+                ret.put(buffer);
             }
 
             ret.rewind();
@@ -17,9 +17,6 @@
  */
 package com.machinepublishers.jbrowserdriver;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,21 +25,22 @@ import javafx.application.Platform;
 
 class AjaxListener implements Runnable {
   private static final long MAX_WAIT_DEFAULT = 15000;
-  private static final int IDLE_COUNT_TARGET = 3;
   private final AtomicBoolean started;
   private final AtomicInteger newStatusCode;
   private final StatusCode statusCode;
-  private final Map<String, Long> resources;
+  private final PendingResources resources;
   private final AtomicLong timeoutMS;
+  private final Session session;
 
   AjaxListener(final AtomicBoolean started, final AtomicInteger newStatusCode,
       final StatusCode statusCode,
-      final Map<String, Long> resources, final AtomicLong timeoutMS) {
+      final PendingResources resources, final AtomicLong timeoutMS, final Session session) {
     this.started = started;
     this.newStatusCode = newStatusCode;
     this.statusCode = statusCode;
     this.resources = resources;
     this.timeoutMS = timeoutMS;
+    this.session = session;
   }
 
   /**
@@ -50,6 +48,7 @@ class AjaxListener implements Runnable {
    */
   @Override
   public void run() {
+    Session.bind(session);
     while (true) {
       synchronized (statusCode) {
         while (statusCode.get() != 0) {
@@ -58,9 +57,7 @@ class AjaxListener implements Runnable {
           } catch (InterruptedException e) {}
         }
       }
-      int size = 0;
       final long start = System.currentTimeMillis();
-      long time = start;
       final Settings settings = SettingsManager.settings();
       final AtomicBoolean done = new AtomicBoolean();
       Platform.runLater(() -> {
@@ -77,38 +74,23 @@ class AjaxListener implements Runnable {
         }
       }
       if (settings != null) {
-        final long sleepMS = Math.max(settings.ajaxWait() / IDLE_COUNT_TARGET, 0);
-        int idleCount = 0;
-        int idleCountTarget = sleepMS == 0 ? 1 : IDLE_COUNT_TARGET;
-        while (time - start < (timeoutMS.get() <= 0 ? MAX_WAIT_DEFAULT : timeoutMS.get())) {
-          try {
-            Thread.sleep(sleepMS);
-          } catch (InterruptedException e) {
-            return;
-          }
-          time = System.currentTimeMillis();
-          synchronized (statusCode) {
-            if (Thread.interrupted()) {
-              return;
-            }
-            final Set<String> remove = new HashSet<String>();
-            for (Map.Entry<String, Long> entry : resources.entrySet()) {
-              if (time - entry.getValue() > settings.ajaxResourceTimeout()) {
-                remove.add(entry.getKey());
+        //woken by HttpListener as resources finish, otherwise when the quiet window or a resource timeout elapses
+        final long deadline = start + (timeoutMS.get() <= 0 ? MAX_WAIT_DEFAULT : timeoutMS.get());
+        synchronized (statusCode) {
+          for (long now = System.currentTimeMillis(); now < deadline; now = System.currentTimeMillis()) {
+            long wakeAt = Math.min(deadline, resources.expire(now, settings.ajaxResourceTimeout()));
+            if (resources.size() == 0) {
+              long quietUntil = resources.lastActivity() + settings.ajaxWait();
+              if (now >= quietUntil) {
+                break;
               }
+              wakeAt = Math.min(wakeAt, quietUntil);
             }
-            for (String key : remove) {
-              resources.remove(key);
+            try {
+              statusCode.wait(Math.max(1, wakeAt - now));
+            } catch (InterruptedException e) {
+              return;
             }
-            size = resources.size();
-          }
-          if (size == 0) {
-            ++idleCount;
-          } else {
-            idleCount = 0;
-          }
-          if (idleCount == idleCountTarget) {
-            break;
           }
         }
       }
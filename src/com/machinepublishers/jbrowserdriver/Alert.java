@@ -33,7 +33,7 @@ class Alert implements org.openqa.selenium.Alert {
   @Override
   public void accept() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.accept();
       }
     } catch (Throwable t) {
@@ -47,7 +47,7 @@ class Alert implements org.openqa.selenium.Alert {
   @Override
   public void dismiss() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.dismiss();
       }
     } catch (Throwable t) {
@@ -61,7 +61,7 @@ class Alert implements org.openqa.selenium.Alert {
   @Override
   public String getText() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.getText();
       }
     } catch (Throwable t) {
@@ -76,7 +76,7 @@ class Alert implements org.openqa.selenium.Alert {
   @Override
   public void sendKeys(String text) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.sendKeys(text);
       }
     } catch (Throwable t) {
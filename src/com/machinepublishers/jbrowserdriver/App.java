@@ -50,6 +50,9 @@ public class App extends Application {
   private int width;
   private int height;
   private boolean headless;
+  private Session session;
+  private Stage stage;
+  private WebView view;
 
   /**
    * Internal use only.
@@ -80,10 +83,19 @@ public class App extends Application {
     }
   }
 
-  void init(int width, int height, boolean headless) {
+  Stage stage() {
+    return stage;
+  }
+
+  WebView view() {
+    return view;
+  }
+
+  void init(int width, int height, boolean headless, Session session) {
     this.width = width;
     this.height = height;
     this.headless = headless;
+    this.session = session;
   }
 
   /**
@@ -95,6 +107,7 @@ public class App extends Application {
     width = Integer.parseInt(params.get(0));
     height = Integer.parseInt(params.get(1));
     headless = Boolean.parseBoolean(params.get(2));
+    session = params.size() > 3 ? Session.forId(params.get(3)) : null;
   }
 
   void start() throws Exception {
@@ -120,7 +133,8 @@ public class App extends Application {
       stage = new Stage();
     }
     Platform.setImplicitExit(false);
-    WebView view = new WebView();
+    //requests and cookies of the page are attributed to the session it's created for
+    WebView view = session == null ? new WebView() : session.inPage(() -> new WebView());
     view.setCache(false);
     StackPane root = new StackPane();
     root.setCache(false);
@@ -141,6 +155,8 @@ public class App extends Application {
     stage.sizeToScene();
     engine.titleProperty().addListener(new TitleListener(stage));
     stage.show();
+    this.stage = stage;
+    this.view = view;
     synchronized (lock) {
       myStage = stage;
       myView = view;
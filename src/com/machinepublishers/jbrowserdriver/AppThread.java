@@ -35,33 +35,23 @@ class AppThread {
   }
 
   private static class Runner<T> implements Runnable {
-    private static final int MAX_DELAY = 500;
     private final Sync<T> action;
     private final StatusCode statusCode;
     private final AtomicBoolean done;
     private final AtomicReference<T> returned;
-    private final int delay;
     private final AtomicBoolean cancel;
     private final AtomicReference<Throwable> failure;
+    private final Session session;
+    private long parkedAt;
 
     public Runner(Sync<T> action, StatusCode statusCode) {
       this.action = action;
       this.statusCode = statusCode;
       this.done = new AtomicBoolean();
       this.returned = new AtomicReference<T>();
-      this.delay = 1;
       this.cancel = new AtomicBoolean();
       this.failure = new AtomicReference<Throwable>();
-    }
-
-    public Runner(Runner other) {
-      this.action = other.action;
-      this.statusCode = other.statusCode;
-      this.done = other.done;
-      this.returned = other.returned;
-      this.delay = Math.min(MAX_DELAY, other.delay * 2);
-      this.cancel = other.cancel;
-      this.failure = other.failure;
+      this.session = Session.current();
     }
 
     /**
@@ -71,15 +61,15 @@ class AppThread {
     public void run() {
       if (!cancel.get()) {
         synchronized (statusCode) {
-          if (statusCode.get() == 0) {
-            final Runner newRunner = new Runner(this);
-            new Thread(() -> {
-              try {
-                Thread.sleep(delay);
-              } catch (InterruptedException e) {}
-              Platform.runLater(newRunner);
-            }).start();
+          if (statusCode.park(this)) {
+            //re-posted by StatusCode.set once the page load completes
+            if (parkedAt == 0) {
+              parkedAt = System.currentTimeMillis();
+              session.actionParked();
+            }
           } else {
+            Session prev = Session.bind(session);
+            unqueue();
             if (statusCode.get() > 299) {
               LogsServer.instance().trace("Performing browser action, but HTTP status is " + statusCode.get() + ".");
             }
@@ -89,6 +79,7 @@ class AppThread {
             } catch (Throwable t) {
               failure.set(t);
             } finally {
+              Session.bind(prev);
               synchronized (done) {
                 returned.set(result);
                 done.set(true);
@@ -99,6 +90,25 @@ class AppThread {
         }
       }
     }
+
+    void cancel() {
+      cancel.set(true);
+      synchronized (statusCode) {
+        statusCode.unpark(this);
+        unqueue();
+      }
+    }
+
+    private void unqueue() {
+      if (parkedAt != 0) {
+        long waited = System.currentTimeMillis() - parkedAt;
+        parkedAt = 0;
+        session.actionUnparked(waited);
+        session.logs().trace("Browser action waited " + waited + "ms for page load. Actions still waiting: "
+            + session.actionsWaiting() + "; actions which have waited: " + session.actionsWaited()
+            + ", for " + session.actionWaitMS() + "ms in total.");
+      }
+    }
   }
 
   private static void pause() {
@@ -159,14 +169,16 @@ class AppThread {
           } catch (InterruptedException e) {
             LogsServer.instance().exception(e);
           }
-          if (!runner.done.get()) {
-            runner.cancel.set(true);
-            throw new TimeoutException("Timeout of " + timeout + "ms reached.");
-          }
         }
-        handleExecutionException(runner.failure.get());
-        return runner.returned.get();
       }
+      if (!runner.done.get()) {
+        runner.cancel();
+        if (!runner.done.get()) {
+          throw new TimeoutException("Timeout of " + timeout + "ms reached.");
+        }
+      }
+      handleExecutionException(runner.failure.get());
+      return runner.returned.get();
     } finally {
       if (pauseAfterExec) {
         pause();
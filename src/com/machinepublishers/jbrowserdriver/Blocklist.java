@@ -0,0 +1,125 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Domains blocked and allowed by the user's blocklist files (see {@link Settings.Builder#blockLists(File...)}).
+ * <p>
+ * Each line of a file is one of:
+ * <ul>
+ * <li>a domain, e.g. <code>ads.example.com</code></li>
+ * <li>a hosts file entry, e.g. <code>0.0.0.0 ads.example.com</code></li>
+ * <li>an EasyList-style domain rule, e.g. <code>||ads.example.com^</code></li>
+ * <li>an EasyList-style exception, e.g. <code>@@||example.com^</code>, which allows a domain
+ * even if it's blocked by another rule or by {@link Settings.Builder#blockAds(boolean)}</li>
+ * </ul>
+ * Comments (lines starting with <code>!</code>, <code>#</code>, or <code>[</code>) are ignored,
+ * as are element hiding rules and rules with paths, wildcards, or options since these can't be applied to a host alone.
+ */
+class Blocklist {
+  static final Blocklist EMPTY = new Blocklist(Collections.<File> emptyList(), HostMatcher.EMPTY, HostMatcher.EMPTY);
+  private static final Pattern domain = Pattern.compile("[a-z0-9_-]+(\\.[a-z0-9_-]+)+");
+  private final List<File> files;
+  private final HostMatcher blocked;
+  private final HostMatcher allowed;
+
+  private Blocklist(List<File> files, HostMatcher blocked, HostMatcher allowed) {
+    this.files = files;
+    this.blocked = blocked;
+    this.allowed = allowed;
+  }
+
+  static Blocklist load(List<File> files) {
+    if (files.isEmpty()) {
+      return EMPTY;
+    }
+    List<String> blockedTmp = new ArrayList<String>();
+    List<String> allowedTmp = new ArrayList<String>();
+    for (File file : files) {
+      BufferedReader reader = null;
+      try {
+        reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          parse(line.trim().toLowerCase(), blockedTmp, allowedTmp);
+        }
+      } catch (Throwable t) {
+        LogsServer.instance().exception(t);
+      } finally {
+        Util.close(reader);
+      }
+    }
+    return new Blocklist(files, new HostMatcher(blockedTmp), new HostMatcher(allowedTmp));
+  }
+
+  private static void parse(String line, List<String> blocked, List<String> allowed) {
+    if (line.isEmpty() || line.startsWith("!") || line.startsWith("#") || line.startsWith("[")) {
+      return;
+    }
+    int comment = line.indexOf('#');
+    if (comment > -1) {
+      if (!Character.isWhitespace(line.charAt(comment - 1))) {
+        //element hiding rule, e.g. example.com##.ad
+        return;
+      }
+      line = line.substring(0, comment).trim();
+    }
+    List<String> target = blocked;
+    if (line.startsWith("@@")) {
+      target = allowed;
+      line = line.substring(2);
+    }
+    if (line.startsWith("||")) {
+      line = line.substring(2);
+      line = line.endsWith("^") ? line.substring(0, line.length() - 1) : line;
+    } else {
+      int space = Math.max(line.lastIndexOf(' '), line.lastIndexOf('\t'));
+      line = space > -1 ? line.substring(space + 1) : line;
+    }
+    if (domain.matcher(line).matches()) {
+      target.add(line);
+    }
+  }
+
+  List<File> files() {
+    return files;
+  }
+
+  /**
+   * @return whether an exception rule allows the host
+   */
+  boolean allows(String host) {
+    return allowed.matches(host);
+  }
+
+  /**
+   * @return whether a rule blocks the host, ignoring exceptions
+   */
+  boolean blocks(String host) {
+    return blocked.matches(host);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * How the HTTP cache treats the responses of a host, for crawls where reusing assets matters more than
+ * their freshness. Set with {@link Settings.Builder#cachePolicy(CachePolicy)} and
+ * {@link Settings.Builder#cachePolicy(String, CachePolicy)}. Has no effect unless the cache is enabled.
+ */
+public class CachePolicy implements Serializable {
+  private final long maxStale;
+  private final Set<String> ignoredParams;
+
+  /**
+   * Standard HTTP caching.
+   */
+  public CachePolicy() {
+    this(0);
+  }
+
+  /**
+   * @param maxStale
+   *          Seconds a response can be served from the cache after it's gone stale, regardless of
+   *          <code>Cache-Control</code> directives such as <code>no-cache</code>. A stale response is revalidated in the
+   *          background when it's served. Zero for standard HTTP freshness.
+   * @param ignoredParams
+   *          Names of query parameters left out of cache keys, such as cache busters and tracking parameters,
+   *          so URLs which differ only by these parameters share one cache entry.
+   */
+  public CachePolicy(long maxStale, String... ignoredParams) {
+    this.maxStale = Math.max(0, maxStale);
+    this.ignoredParams = Collections.unmodifiableSet(ignoredParams == null
+        ? new LinkedHashSet<String>() : new LinkedHashSet<String>(Arrays.asList(ignoredParams)));
+  }
+
+  long maxStale() {
+    return maxStale;
+  }
+
+  Set<String> ignoredParams() {
+    return ignoredParams;
+  }
+
+  boolean isStandard() {
+    return maxStale == 0 && ignoredParams.isEmpty();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof CachePolicy
+        && ((CachePolicy) obj).maxStale == maxStale
+        && ((CachePolicy) obj).ignoredParams.equals(ignoredParams);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(maxStale) + ignoredParams.hashCode();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "CachePolicy [maxStale=" + maxStale + ", ignoredParams=" + ignoredParams + "]";
+  }
+}
@@ -48,7 +48,9 @@ class ContextItem {
   final AtomicReference<String> itemId = new AtomicReference<String>();
   final AtomicReference<Context> context = new AtomicReference<Context>();
   final StatusCode statusCode = new StatusCode();
+  final ScriptCache scripts = new ScriptCache();
   private final Object lock = new Object();
+  private final FrameTree frames = new FrameTree();
   private ElementServer frame;
 
   ContextItem() {
@@ -81,79 +83,46 @@ class ContextItem {
   }
 
   boolean containsFrame(JSObject doc) {
-    return engine.get().getDocument().equals(doc) || ancestors(engine.get().getDocument(), doc) != null;
+    //the frame tree calls into the page, which is only allowed on the JavaFX thread
+    return AppThread.exec(statusCode,
+        () -> doc instanceof Document && frames.ancestors(engine.get().getDocument(), (Document) doc) != null);
   }
 
-  private List<Node> ancestors(Document doc, JSObject targetNode) {
-    if (targetNode != null) {
-      List<Node> list = new ArrayList<Node>();
-      try {
-        List elements = new ArrayList();
-        elements.addAll(new ElementServer((JSObject) doc, this).findElementsByTagName("frame"));
-        elements.addAll(new ElementServer((JSObject) doc, this).findElementsByTagName("iframe"));
-        for (Object cur : elements) {
-          JSObject node = ((ElementServer) cur).node();
-          if (node instanceof Node) {
-            list.add((Node) node);
-          }
-        }
-      } catch (RemoteException e) {
-        Util.handleException(e);
-      }
-      for (Node cur : list) {
-        Document curDoc = null;
-        if (cur instanceof HTMLFrameElement) {
-          curDoc = ((HTMLFrameElement) cur).getContentDocument();
-        } else if (cur instanceof HTMLIFrameElement) {
-          curDoc = ((HTMLIFrameElement) cur).getContentDocument();
-        }
-        Document targetDoc = null;
-        if (targetNode instanceof HTMLFrameElement) {
-          targetDoc = ((HTMLFrameElement) targetNode).getContentDocument();
-        } else if (targetNode instanceof HTMLIFrameElement) {
-          targetDoc = ((HTMLIFrameElement) targetNode).getContentDocument();
-        } else if (targetNode instanceof Document) {
-          targetDoc = (Document) targetNode;
-        }
-        if (curDoc.equals(targetDoc)) {
-          List<Node> ancestors = new ArrayList<Node>();
-          ancestors.add(cur);
-          return ancestors;
-        }
-        List<Node> ancestors = ancestors(curDoc, targetNode);
-        if (ancestors != null) {
-          ancestors.add(cur);
-          return ancestors;
-        }
-      }
-    }
-    return null;
+  /**
+   * Called when a frame starts loading, which may add, remove, or replace documents in the page.
+   */
+  void framesChanged() {
+    frames.invalidate();
+  }
 
+  private List<Node> ancestors(Document doc, JSObject targetNode) {
+    Document targetDoc = targetNode instanceof Document ? (Document) targetNode : FrameTree.contentDocument(targetNode);
+    List<Node> ancestors = frames.ancestors(doc, targetDoc);
+    return ancestors == null || ancestors.isEmpty() ? null : new ArrayList<Node>(ancestors);
   }
 
+  /**
+   * @return offset of the selected frame's content within the page, summed over the cached chain
+   *         of frame elements containing it in a single pass on the JavaFX thread
+   */
   org.openqa.selenium.Point selectedFrameLocation() {
-    synchronized (lock) {
-      int xCoord = 0;
-      int yCoord = 0;
-      if (frame != null) {
-        List<Node> ancestors = ancestors(engine.get().getDocument(), frame.node());
+    return AppThread.exec(statusCode, () -> {
+      synchronized (lock) {
+        int xCoord = 0;
+        int yCoord = 0;
+        List<Node> ancestors = frame == null ? null : ancestors(engine.get().getDocument(), frame.node());
         if (ancestors != null) {
           for (Node cur : ancestors) {
-            try {
-              if (cur instanceof JSObject) {
-                org.openqa.selenium.Point point = new ElementServer((JSObject) cur, this).getLocation();
-                xCoord += point.getX();
-                yCoord += point.getY();
-              }
-            } catch (RemoteException e) {
-              Util.handleException(e);
+            if (cur instanceof JSObject) {
+              JSObject rect = (JSObject) ((JSObject) cur).call("getBoundingClientRect");
+              xCoord += (int) Math.rint(Double.parseDouble(rect.getMember("left").toString())) + 1;
+              yCoord += (int) Math.rint(Double.parseDouble(rect.getMember("top").toString())) + 1;
             }
-
           }
         }
+        return new org.openqa.selenium.Point(xCoord, yCoord);
       }
-      return new org.openqa.selenium.Point(xCoord, yCoord);
-    }
+    });
   }
 
   void deselectFrame() {
@@ -163,22 +132,25 @@ class ContextItem {
   }
 
   void selectFrame(ElementServer frame) {
-    synchronized (lock) {
-      this.frame = null;
-      if (frame != null && frame.node() instanceof Document && !frame.node().equals(engine.get().getDocument())) {
-        List<Node> ancestors = ancestors(engine.get().getDocument(), frame.node());
-        if (ancestors != null && !ancestors.isEmpty() && ancestors.get(0) instanceof JSObject) {
-          try {
-            this.frame = new ElementServer((JSObject) ancestors.get(0), this);
-          } catch (RemoteException e) {
-            Util.handleException(e);
+    AppThread.exec(statusCode, () -> {
+      synchronized (lock) {
+        this.frame = null;
+        if (frame != null && frame.node() instanceof Document && !frame.node().equals(engine.get().getDocument())) {
+          List<Node> ancestors = ancestors(engine.get().getDocument(), frame.node());
+          if (ancestors != null && !ancestors.isEmpty() && ancestors.get(0) instanceof JSObject) {
+            try {
+              this.frame = new ElementServer((JSObject) ancestors.get(0), this);
+            } catch (RemoteException e) {
+              Util.handleException(e);
+            }
           }
+        } else if (frame != null &&
+            (frame.node() instanceof HTMLIFrameElement || frame.node() instanceof HTMLFrameElement)) {
+          this.frame = frame;
         }
-      } else if (frame != null &&
-          (frame.node() instanceof HTMLIFrameElement || frame.node() instanceof HTMLFrameElement)) {
-        this.frame = frame;
+        return null;
       }
-    }
+    });
   }
 
   void init(final JBrowserDriverServer driver, final Context context) {
@@ -196,6 +168,7 @@ class ContextItem {
       AppThread.exec(statusCode, () -> {
         Settings settings = SettingsManager.settings();
         engine.get().setJavaScriptEnabled(settings.javascript());
+        Session.current().addEngine(engine.get());
         //If null engine uses automatic value.
         engine.get().setUserDataDirectory(context.userDataDirectory.get());
         httpListener.set(new HttpListener(thisObject,
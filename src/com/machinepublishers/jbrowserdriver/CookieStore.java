@@ -21,53 +21,107 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.net.CookieHandler;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.util.PublicSuffixMatcher;
+import org.apache.http.conn.util.PublicSuffixMatcherLoader;
 import org.apache.http.cookie.Cookie;
 import org.apache.http.cookie.CookieOrigin;
 import org.apache.http.cookie.CookieSpec;
 import org.apache.http.cookie.MalformedCookieException;
-import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.message.BasicHeader;
 
+/**
+ * Cookies of a session, indexed by domain.
+ * <p>
+ * Cookies are grouped by the registrable part of their domain, i.e., its public suffix plus one label
+ * (cookies whose domain has no registrable part, such as a public suffix or a single label, share a group),
+ * so a request only looks at the groups of its host's parent domains. Each group is an immutable array, longest paths first,
+ * which is replaced on write; reads don't lock. Canonical domains and paths are computed once per cookie,
+ * and expired cookies are removed lazily using a heap ordered by expiry. Replaced cookies are flagged
+ * rather than searched for in the heap, and the heap is rebuilt once they outnumber the live ones.
+ */
 class CookieStore extends CookieHandler implements org.apache.http.client.CookieStore, Serializable {
 
   private static final CookieSpec spec = new LaxCookieSpecProvider().create(null);
-  private final org.apache.http.client.CookieStore store = new BasicCookieStore();
+  private static final Entry[] NONE = new Entry[0];
+  private static final PublicSuffixMatcher publicSuffixes = PublicSuffixMatcherLoader.getDefault();
+  private final Map<String, Entry[]> groups = new ConcurrentHashMap<String, Entry[]>();
+  private final PriorityQueue<Entry> expiries = new PriorityQueue<Entry>();
+  private int replacedExpiries;
+  private volatile long nextExpiry = Long.MAX_VALUE;
+  private transient volatile List<Cookie> cookies;
+
+  private static class Entry implements Comparable<Entry>, Serializable {
+    private final Cookie cookie;
+    private final String domain;
+    private final String group;
+    private final String path;
+    private final long expiry;
+    private boolean removed;
+
+    Entry(Cookie cookie) {
+      this.cookie = cookie;
+      this.domain = canonicalDomain(cookie.getDomain());
+      this.group = group(domain);
+      this.path = canonicalPath(cookie.getPath());
+      this.expiry = cookie.getExpiryDate() == null ? Long.MAX_VALUE : cookie.getExpiryDate().getTime();
+    }
+
+    boolean matches(String host, String path, boolean secure, long now) {
+      return (!cookie.isSecure() || secure)
+          && expiry > now
+          && domainMatches(host, domain)
+          && path.startsWith(this.path);
+    }
+
+    /**
+     * Same identity as {@link org.apache.http.cookie.CookieIdentityComparator}
+     */
+    boolean sameAs(Cookie other) {
+      return cookie.getName().equals(other.getName())
+          && StringUtils.equalsIgnoreCase(cookie.getDomain(), other.getDomain())
+          && StringUtils.defaultString(cookie.getPath(), "/").equals(StringUtils.defaultString(other.getPath(), "/"));
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      return Long.compare(expiry, other.expiry);
+    }
+  }
 
   /**
    * {@inheritDoc}
    */
   @Override
   public Map<String, List<String>> get(URI uri, Map<String, List<String>> requestHeaders) throws IOException {
-    final String reqHost = canonicalHost(uri.getHost());
-    final String reqPath = canonicalPath(uri.getPath());
-    final boolean reqSecure = isSecure(uri.getScheme());
-    final boolean reqJavascript = isJavascript(uri.getScheme());
     StringBuilder builder = new StringBuilder();
-    if (reqJavascript) {
-      List<Cookie> list;
-      synchronized (store) {
-        store.clearExpired(new Date());
-        list = store.getCookies();
-      }
-      for (Cookie cookie : list) {
-        if ((!cookie.isSecure() || reqSecure)
-            && reqHost.endsWith(canonicalHost(cookie.getDomain()))
-            && reqPath.startsWith(canonicalPath(cookie.getPath()))) {
-          if (builder.length() > 0) {
-            builder.append(';');
+    if (isJavascript(uri.getScheme())) {
+      final String reqHost = canonicalDomain(uri.getHost());
+      final String reqPath = canonicalPath(uri.getPath());
+      final boolean reqSecure = isSecure(uri.getScheme());
+      final long now = System.currentTimeMillis();
+      expire(now);
+      for (Entry[] group : groups(reqHost)) {
+        for (int i = 0; i < group.length; i++) {
+          if (group[i].matches(reqHost, reqPath, reqSecure, now)) {
+            if (builder.length() > 0) {
+              builder.append(';');
+            }
+            builder.append(group[i].cookie.getName());
+            builder.append('=');
+            builder.append(group[i].cookie.getValue());
           }
-          builder.append(cookie.getName());
-          builder.append('=');
-          builder.append(cookie.getValue());
         }
       }
     }
@@ -98,9 +152,7 @@ class CookieStore extends CookieHandler implements org.apache.http.client.Cookie
                     canonicalPath(uri.getPath()),
                     isSecure(uri.getScheme())));
             for (Cookie cookie : cookies) {
-              synchronized (store) {
-                store.addCookie(cookie);
-              }
+              addCookie(cookie);
             }
           } catch (MalformedCookieException e) {
             LogsServer.instance().warn(
@@ -126,11 +178,14 @@ class CookieStore extends CookieHandler implements org.apache.http.client.Cookie
     return isSecure(scheme) ? 443 : 80;
   }
 
-  private static String canonicalHost(String host) {
-    if (host == null || host.isEmpty()) {
+  /**
+   * @return lowercase domain without a leading dot
+   */
+  private static String canonicalDomain(String domain) {
+    if (domain == null || domain.isEmpty()) {
       return "";
     }
-    return host.startsWith(".") ? host.toLowerCase() : "." + host.toLowerCase();
+    return (domain.startsWith(".") ? domain.substring(1) : domain).toLowerCase();
   }
 
   private static String canonicalPath(String path) {
@@ -139,30 +194,98 @@ class CookieStore extends CookieHandler implements org.apache.http.client.Cookie
     canonical = canonical.endsWith("/") ? canonical : canonical + "/";
     return canonical.toLowerCase();
   }
-  
-  public void addCsrfHeaders(Settings settings, HttpRequestBase req) {
-    final String reqHost = canonicalHost(req.getURI().getHost());
-	final String reqPath = canonicalPath(req.getURI().getPath());
-	final boolean reqSecure = isSecure(req.getURI().getScheme());
-	    
-	List<Cookie> list;
-    synchronized (store) {
-      list = store.getCookies();
-    }
-    String csrfToken = null;
-    for (Cookie cookie : list) {
-      if ((!cookie.isSecure() || reqSecure)
-          && reqHost.endsWith(canonicalHost(cookie.getDomain()))
-          && reqPath.startsWith(canonicalPath(cookie.getPath()))) {
-      	if(SettingsManager.settings().getCsrfResponseToken() != null && 
-       		  cookie.getName().equalsIgnoreCase(SettingsManager.settings().getCsrfResponseToken())) {
-       	  csrfToken = cookie.getValue();
-       	  break;
+
+  /**
+   * @return whether the host is the domain or a subdomain of it
+   */
+  private static boolean domainMatches(String host, String domain) {
+    int offset = host.length() - domain.length();
+    return domain.isEmpty()
+        || (offset >= 0 && host.startsWith(domain, offset) && (offset == 0 || host.charAt(offset - 1) == '.'));
+  }
+
+  /**
+   * @return registrable part of the domain, or an empty string if it has none
+   */
+  private static String group(String domain) {
+    String root = domain.isEmpty() ? null : publicSuffixes.getDomainRoot(domain);
+    return root == null ? "" : root;
+  }
+
+  /**
+   * @return groups which can have cookies matching the host
+   */
+  private List<Entry[]> groups(String host) {
+    //a cookie's group is a suffix of its domain, which is the host or one of its parents,
+    //so this also finds cookies whose group differs from the host's, e.g., "amazonaws.com" for "s3.amazonaws.com"
+    List<Entry[]> matching = new ArrayList<Entry[]>(2);
+    for (String domain = host; !domain.isEmpty();) {
+      Entry[] group = groups.get(domain);
+      if (group != null) {
+        matching.add(group);
+      }
+      int dot = domain.indexOf('.');
+      domain = dot == -1 ? "" : domain.substring(dot + 1);
+    }
+    Entry[] noGroup = groups.get("");
+    if (noGroup != null) {
+      matching.add(noGroup);
+    }
+    return matching;
+  }
+
+  /**
+   * @return cookies which can match the host, for HttpClient to filter further with the request's cookie spec.
+   *         Cookies added to the view are added to this store.
+   */
+  org.apache.http.client.CookieStore forHost(String host) {
+    final List<Entry[]> groups = groups(canonicalDomain(host));
+    return new org.apache.http.client.CookieStore() {
+      @Override
+      public List<Cookie> getCookies() {
+        List<Cookie> cookies = new ArrayList<Cookie>();
+        for (Entry[] group : groups) {
+          for (int i = 0; i < group.length; i++) {
+            cookies.add(group[i].cookie);
+          }
         }
+        return cookies;
+      }
+
+      @Override
+      public void addCookie(Cookie cookie) {
+        CookieStore.this.addCookie(cookie);
       }
+
+      @Override
+      public boolean clearExpired(Date date) {
+        return CookieStore.this.clearExpired(date);
+      }
+
+      @Override
+      public void clear() {
+        CookieStore.this.clear();
+      }
+    };
+  }
+
+  public void addCsrfHeaders(Settings settings, HttpRequestBase req) {
+    final String tokenName = settings.getCsrfResponseToken();
+    if (tokenName == null) {
+      return;
     }
-    if(csrfToken != null) {
-      req.addHeader(SettingsManager.settings().getCsrfRequestToken(), csrfToken);
+    final String reqHost = canonicalDomain(req.getURI().getHost());
+    final String reqPath = canonicalPath(req.getURI().getPath());
+    final boolean reqSecure = isSecure(req.getURI().getScheme());
+    final long now = System.currentTimeMillis();
+    for (Entry[] group : groups(reqHost)) {
+      for (int i = 0; i < group.length; i++) {
+        if (group[i].cookie.getName().equalsIgnoreCase(tokenName)
+            && group[i].matches(reqHost, reqPath, reqSecure, now)) {
+          req.addHeader(settings.getCsrfRequestToken(), group[i].cookie.getValue());
+          return;
+        }
+      }
     }
   }
 
@@ -171,18 +294,135 @@ class CookieStore extends CookieHandler implements org.apache.http.client.Cookie
    */
   @Override
   public void addCookie(Cookie cookie) {
-    synchronized (store) {
-      store.addCookie(cookie);
+    if (cookie == null) {
+      return;
+    }
+    Entry entry = new Entry(cookie);
+    String group = entry.group;
+    synchronized (groups) {
+      Entry[] prev = groups.get(group);
+      prev = prev == null ? NONE : prev;
+      List<Entry> next = new ArrayList<Entry>(prev.length + 1);
+      for (int i = 0; i < prev.length; i++) {
+        if (prev[i].sameAs(cookie)) {
+          replaced(prev[i]);
+        } else {
+          next.add(prev[i]);
+        }
+      }
+      if (!cookie.isExpired(new Date())) {
+        int insert = 0;
+        while (insert < next.size() && next.get(insert).path.length() >= entry.path.length()) {
+          ++insert;
+        }
+        next.add(insert, entry);
+        if (entry.expiry != Long.MAX_VALUE) {
+          expiries.add(entry);
+          nextExpiry = expiries.peek().expiry;
+        }
+      }
+      update(group, next);
     }
   }
 
+  /**
+   * Replaces all cookies in one step, which is much faster than adding them one at a time.
+   * Later cookies replace earlier ones with the same identity, and expired cookies are skipped.
+   */
+  void replaceAll(List<Cookie> cookies) {
+    final long now = System.currentTimeMillis();
+    Map<String, List<Entry>> grouped = new HashMap<String, List<Entry>>();
+    Map<String, Entry> identities = new HashMap<String, Entry>();
+    for (Cookie cookie : cookies) {
+      Entry entry = new Entry(cookie);
+      String identity = new StringBuilder().append(cookie.getName()).append('\n')
+          .append(StringUtils.lowerCase(cookie.getDomain())).append('\n')
+          .append(StringUtils.defaultString(cookie.getPath(), "/")).toString();
+      Entry prev = identities.put(identity, entry);
+      if (prev != null) {
+        prev.removed = true;
+      }
+      if (entry.expiry > now) {
+        String group = entry.group;
+        List<Entry> list = grouped.get(group);
+        if (list == null) {
+          list = new ArrayList<Entry>();
+          grouped.put(group, list);
+        }
+        list.add(entry);
+      }
+    }
+    synchronized (groups) {
+      groups.clear();
+      expiries.clear();
+      replacedExpiries = 0;
+      for (Map.Entry<String, List<Entry>> group : grouped.entrySet()) {
+        List<Entry> entries = new ArrayList<Entry>(group.getValue().size());
+        for (Entry entry : group.getValue()) {
+          if (!entry.removed) {
+            entries.add(entry);
+            if (entry.expiry != Long.MAX_VALUE) {
+              expiries.add(entry);
+            }
+          }
+        }
+        //stable, so cookies with the same path length keep their order
+        Collections.sort(entries, (a, b) -> b.path.length() - a.path.length());
+        update(group.getKey(), entries);
+      }
+      nextExpiry = expiries.isEmpty() ? Long.MAX_VALUE : expiries.peek().expiry;
+    }
+  }
+
+  /**
+   * Flags an entry which was replaced, and drops flagged entries from the expiry heap once they outnumber the rest.
+   * Called while holding the lock on groups.
+   */
+  private void replaced(Entry entry) {
+    entry.removed = true;
+    if (entry.expiry != Long.MAX_VALUE && ++replacedExpiries > expiries.size() / 2) {
+      expiries.removeIf(cur -> cur.removed);
+      replacedExpiries = 0;
+      nextExpiry = expiries.isEmpty() ? Long.MAX_VALUE : expiries.peek().expiry;
+    }
+  }
+
+  private void update(String group, List<Entry> entries) {
+    if (entries.isEmpty()) {
+      groups.remove(group);
+    } else {
+      groups.put(group, entries.toArray(new Entry[entries.size()]));
+    }
+    cookies = null;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public List<Cookie> getCookies() {
-    synchronized (store) {
-      return store.getCookies();
+    List<Cookie> cur = cookies;
+    if (cur == null) {
+      synchronized (groups) {
+        cur = cookies;
+        if (cur == null) {
+          List<Cookie> list = new ArrayList<Cookie>();
+          for (Entry[] group : groups.values()) {
+            for (int i = 0; i < group.length; i++) {
+              list.add(group[i].cookie);
+            }
+          }
+          cur = Collections.unmodifiableList(list);
+          cookies = cur;
+        }
+      }
+    }
+    return cur;
+  }
+
+  private void expire(long now) {
+    if (now >= nextExpiry) {
+      clearExpired(new Date(now));
     }
   }
 
@@ -191,9 +431,30 @@ class CookieStore extends CookieHandler implements org.apache.http.client.Cookie
    */
   @Override
   public boolean clearExpired(Date date) {
-    synchronized (store) {
-      return store.clearExpired(date);
+    final long now = date.getTime();
+    boolean cleared = false;
+    synchronized (groups) {
+      while (!expiries.isEmpty() && expiries.peek().expiry <= now) {
+        Entry entry = expiries.poll();
+        if (entry.removed) {
+          --replacedExpiries;
+        } else {
+          entry.removed = true;
+          String group = entry.group;
+          Entry[] prev = groups.get(group);
+          List<Entry> next = new ArrayList<Entry>(prev.length);
+          for (int i = 0; i < prev.length; i++) {
+            if (prev[i] != entry) {
+              next.add(prev[i]);
+            }
+          }
+          update(group, next);
+          cleared = true;
+        }
+      }
+      nextExpiry = expiries.isEmpty() ? Long.MAX_VALUE : expiries.peek().expiry;
     }
+    return cleared;
   }
 
   /**
@@ -201,8 +462,12 @@ class CookieStore extends CookieHandler implements org.apache.http.client.Cookie
    */
   @Override
   public void clear() {
-    synchronized (store) {
-      store.clear();
+    synchronized (groups) {
+      groups.clear();
+      expiries.clear();
+      replacedExpiries = 0;
+      nextExpiry = Long.MAX_VALUE;
+      cookies = null;
     }
   }
 }
@@ -51,7 +51,7 @@ class Coordinates implements org.openqa.selenium.interactions.Coordinates, Seria
   @Override
   public org.openqa.selenium.Point inViewPort() {
     if (inViewport == null) {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         try {
           return remote.locate().toSelenium();
         } catch (Throwable t) {
@@ -0,0 +1,201 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.util.InetAddressUtils;
+
+/**
+ * Resolves host names for a {@link StreamConnectionClient}, caching both answers and failures.
+ * <p>
+ * Hosts in {@link Settings.Builder#hosts(Map)} are answered without a lookup. Other answers are kept for
+ * {@link DnsCache#TTL_MS} and failures for {@link DnsCache#NEGATIVE_TTL_MS}, up to {@link DnsCache#MAX_ENTRIES} hosts.
+ * Concurrent lookups of a host share one query, so a connection which needs a host that's being prefetched
+ * waits for the prefetch rather than querying again.
+ */
+class DnsCache implements DnsResolver {
+  static final int MAX_ENTRIES = 1024;
+  static final long TTL_MS = 60 * 1000;
+  static final long NEGATIVE_TTL_MS = 10 * 1000;
+  private static final ExecutorService prefetchers = Executors.newFixedThreadPool(4, runnable -> {
+    Thread thread = new Thread(runnable, "DnsPrefetch");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Map<String, InetAddress[]> hosts;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong prefetches = new AtomicLong();
+
+  private static class Entry {
+    final CompletableFuture<InetAddress[]> addresses = new CompletableFuture<InetAddress[]>();
+    //in-flight lookups don't expire, so callers join them
+    volatile long expires = Long.MAX_VALUE;
+  }
+
+  /**
+   * @param hosts
+   *          IP address for each host name which should bypass DNS
+   */
+  DnsCache(Map<String, String> hosts) {
+    Map<String, InetAddress[]> hostsTmp = new HashMap<String, InetAddress[]>();
+    for (Map.Entry<String, String> host : hosts.entrySet()) {
+      String address = host.getValue() == null ? "" : host.getValue().trim();
+      if (InetAddressUtils.isIPv4Address(address) || InetAddressUtils.isIPv6Address(address)) {
+        try {
+          hostsTmp.put(host.getKey().toLowerCase(Locale.ENGLISH), new InetAddress[] {
+              InetAddress.getByAddress(host.getKey(), InetAddress.getByName(address).getAddress()) });
+        } catch (UnknownHostException e) {
+          LogsServer.instance().exception(e);
+        }
+      } else {
+        LogsServer.instance().warn("Ignoring hosts entry for " + host.getKey() + ": not an IP address: " + address);
+      }
+    }
+    this.hosts = Collections.unmodifiableMap(hostsTmp);
+  }
+
+  @Override
+  public InetAddress[] resolve(String host) throws UnknownHostException {
+    String key = host.toLowerCase(Locale.ENGLISH);
+    InetAddress[] override = hosts.get(key);
+    if (override != null) {
+      hits.incrementAndGet();
+      return override.clone();
+    }
+    Entry entry = lookup(key, false);
+    try {
+      return entry.addresses.get().clone();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UnknownHostException(host);
+    } catch (ExecutionException e) {
+      UnknownHostException unknown = new UnknownHostException(
+          e.getCause() instanceof UnknownHostException ? e.getCause().getMessage() : host);
+      if (!(e.getCause() instanceof UnknownHostException)) {
+        unknown.initCause(e.getCause());
+      }
+      throw unknown;
+    }
+  }
+
+  /**
+   * Starts lookups in the background for hosts which aren't cached.
+   */
+  void prefetch(Collection<String> hostNames) {
+    for (String host : hostNames) {
+      String key = host.toLowerCase(Locale.ENGLISH);
+      if (!key.isEmpty() && !hosts.containsKey(key)
+          && !InetAddressUtils.isIPv4Address(key) && !InetAddressUtils.isIPv6Address(key)) {
+        lookup(key, true);
+      }
+    }
+  }
+
+  private Entry lookup(String host, boolean prefetch) {
+    while (true) {
+      long now = System.currentTimeMillis();
+      Entry entry = entries.get(host);
+      if (entry != null && entry.expires > now) {
+        if (!prefetch) {
+          hits.incrementAndGet();
+          if (entry.addresses.isCompletedExceptionally()) {
+            negativeHits.incrementAndGet();
+          }
+        }
+        return entry;
+      }
+      Entry created = new Entry();
+      if (entry == null ? entries.putIfAbsent(host, created) == null : entries.replace(host, entry, created)) {
+        (prefetch ? prefetches : misses).incrementAndGet();
+        evict(now);
+        if (prefetch) {
+          prefetchers.execute(() -> query(host, created));
+        } else {
+          query(host, created);
+        }
+        return created;
+      }
+    }
+  }
+
+  private void query(String host, Entry entry) {
+    try {
+      InetAddress[] addresses = InetAddress.getAllByName(host);
+      entry.expires = System.currentTimeMillis() + TTL_MS;
+      entry.addresses.complete(addresses);
+    } catch (UnknownHostException e) {
+      entry.expires = System.currentTimeMillis() + NEGATIVE_TTL_MS;
+      entry.addresses.completeExceptionally(e);
+    } catch (Throwable t) {
+      //not a DNS answer, so don't cache it
+      entries.remove(host, entry);
+      entry.addresses.completeExceptionally(t);
+    }
+  }
+
+  private void evict(long now) {
+    if (entries.size() > MAX_ENTRIES) {
+      for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+        if (it.next().expires <= now) {
+          it.remove();
+        }
+      }
+      for (Iterator<Entry> it = entries.values().iterator(); entries.size() > MAX_ENTRIES && it.hasNext();) {
+        Entry entry = it.next();
+        if (entry.addresses.isDone()) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return fraction of lookups answered from the cache or the hosts overrides
+   */
+  double hitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0d : (double) hitCount / (double) total;
+  }
+
+  @Override
+  public String toString() {
+    return "DNS cache hit rate: " + String.format(Locale.ENGLISH, "%.3f", hitRate())
+        + "; hits: " + hits.get() + " (" + negativeHits.get() + " negative); misses: " + misses.get()
+        + "; prefetched: " + prefetches.get() + "; cached hosts: " + entries.size();
+  }
+}
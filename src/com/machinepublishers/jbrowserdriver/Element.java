@@ -97,7 +97,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
 
   void activate() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.activate();
       }
     } catch (Throwable t) {
@@ -107,7 +107,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
 
   void scriptParam(ElementId id) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.scriptParam(id);
       }
     } catch (Throwable t) {
@@ -121,7 +121,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public void click() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.click();
       }
     } catch (Throwable t) {
@@ -135,7 +135,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public void submit() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.submit();
       }
     } catch (Throwable t) {
@@ -149,7 +149,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public void sendKeys(final CharSequence... keys) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.sendKeys(keys);
       }
     } catch (Throwable t) {
@@ -163,7 +163,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public void clear() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.clear();
       }
     } catch (Throwable t) {
@@ -177,7 +177,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public String getAttribute(final String attrName) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.getAttribute(attrName);
       }
     } catch (Throwable t) {
@@ -192,7 +192,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public String getCssValue(final String name) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.getCssValue(name);
       }
     } catch (Throwable t) {
@@ -207,7 +207,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public org.openqa.selenium.Point getLocation() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.remoteGetLocation().toSelenium();
       }
     } catch (Throwable t) {
@@ -222,7 +222,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public org.openqa.selenium.Dimension getSize() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.remoteGetSize().toSelenium();
       }
     } catch (Throwable t) {
@@ -237,7 +237,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public org.openqa.selenium.Rectangle getRect() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.remoteGetRect().toSelenium();
       }
     } catch (Throwable t) {
@@ -252,7 +252,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public String getTagName() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.getTagName();
       }
     } catch (Throwable t) {
@@ -267,7 +267,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public String getText() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.getText();
       }
     } catch (Throwable t) {
@@ -282,7 +282,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public boolean isDisplayed() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.isDisplayed();
       }
     } catch (Throwable t) {
@@ -297,7 +297,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public boolean isEnabled() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.isEnabled();
       }
     } catch (Throwable t) {
@@ -312,7 +312,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public boolean isSelected() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.isSelected();
       }
     } catch (Throwable t) {
@@ -343,7 +343,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementByXPath(final String expr) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementByXPath(expr), driver, lock);
       }
     } catch (Throwable t) {
@@ -359,7 +359,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsByXPath(final String expr) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsByXPath(expr);
       }
       return constructList(elements, driver, lock);
@@ -375,7 +375,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementByTagName(String tagName) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementByTagName(tagName), driver, lock);
       }
     } catch (Throwable t) {
@@ -391,7 +391,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsByTagName(String tagName) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsByTagName(tagName);
       }
       return constructList(elements, driver, lock);
@@ -407,7 +407,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementByCssSelector(final String expr) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementByCssSelector(expr), driver, lock);
       }
     } catch (Throwable t) {
@@ -423,7 +423,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsByCssSelector(final String expr) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsByCssSelector(expr);
       }
       return constructList(elements, driver, lock);
@@ -439,7 +439,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementByName(String name) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementByName(name), driver, lock);
       }
     } catch (Throwable t) {
@@ -455,7 +455,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsByName(String name) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsByName(name);
       }
       return constructList(elements, driver, lock);
@@ -471,7 +471,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementByLinkText(final String text) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementByLinkText(text), driver, lock);
       }
     } catch (Throwable t) {
@@ -486,7 +486,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementByPartialLinkText(String text) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementByPartialLinkText(text), driver, lock);
       }
     } catch (Throwable t) {
@@ -502,7 +502,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsByLinkText(String text) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsByLinkText(text);
       }
       return constructList(elements, driver, lock);
@@ -519,7 +519,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsByPartialLinkText(String text) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsByPartialLinkText(text);
       }
       return constructList(elements, driver, lock);
@@ -535,7 +535,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementByClassName(String cssClass) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementByClassName(cssClass), driver, lock);
       }
     } catch (Throwable t) {
@@ -551,7 +551,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsByClassName(String cssClass) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsByClassName(cssClass);
       }
       return constructList(elements, driver, lock);
@@ -567,7 +567,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public WebElement findElementById(final String id) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return constructElement(remote.findElementById(id), driver, lock);
       }
     } catch (Throwable t) {
@@ -583,7 +583,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public List<WebElement> findElementsById(String id) {
     try {
       List<ElementRemote> elements;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         elements = remote.findElementsById(id);
       }
       return constructList(elements, driver, lock);
@@ -600,7 +600,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public Object executeAsyncScript(final String script, final Object... args) {
     try {
       Object result;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         result = remote.executeAsyncScript(script, Element.scriptParams(args));
       }
       return constructObject(result, driver, lock);
@@ -617,7 +617,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public Object executeScript(final String script, final Object... args) {
     try {
       Object result;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         result = remote.executeScript(script, Element.scriptParams(args));
       }
       return constructObject(result, driver, lock);
@@ -651,7 +651,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   @Override
   public Coordinates getCoordinates() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return new Coordinates(remote, lock);
       }
     } catch (Throwable t) {
@@ -667,7 +667,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
   public <X> X getScreenshotAs(OutputType<X> outputType) throws WebDriverException {
     try {
       byte[] bytes = null;
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         bytes = remote.getScreenshot();
       }
       if (bytes == null) {
@@ -680,6 +680,28 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
     }
   }
 
+  Screenshot getScreenshot(ImageFormat format) {
+    try {
+      try (SocketLock.Binding binding = lock.validated()) {
+        return remote.getScreenshot(format);
+      }
+    } catch (Throwable t) {
+      Util.handleException(t);
+      return null;
+    }
+  }
+
+  List<ElementRow> query(ElementQuery query) {
+    try {
+      try (SocketLock.Binding binding = lock.validated()) {
+        return remote.query(query);
+      }
+    } catch (Throwable t) {
+      Util.handleException(t);
+      return new ArrayList<ElementRow>();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -693,7 +715,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
    */
   @Override
   public int hashCode() {
-    synchronized (lock.validated()) {
+    try (SocketLock.Binding binding = lock.validated()) {
       try {
         return remote.remoteHashCode();
       } catch (Throwable t) {
@@ -711,7 +733,7 @@ class Element implements WebElement, JavascriptExecutor, FindsById, FindsByClass
     if (obj instanceof Element) {
       ElementId id = new ElementId();
       ((Element) obj).scriptParam(id);
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         try {
           return remote.remoteEquals(id);
         } catch (Throwable t) {
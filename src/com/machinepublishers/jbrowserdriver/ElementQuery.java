@@ -0,0 +1,244 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Locator plus the properties to read from each element it finds. Run it with
+ * {@link JBrowserDriver#query(ElementQuery)} or {@link JBrowserDriver#query(ElementQuery, org.openqa.selenium.WebElement)}.
+ * <p>
+ * Every matching element is read in one pass inside the page, so this is much cheaper than
+ * finding elements and then calling {@link org.openqa.selenium.WebElement#getText()},
+ * {@link org.openqa.selenium.WebElement#getAttribute(String)}, etc. on each one.
+ * <p>
+ * Use {@link ElementQuery#builder()} to create a query.
+ */
+public class ElementQuery implements Serializable {
+  private final String expr;
+  private final boolean xpath;
+  private final boolean tag;
+  private final boolean text;
+  private final boolean rect;
+  private final boolean displayed;
+  private final List<String> attributes;
+  private final int offset;
+  private final int limit;
+
+  /**
+   * Use this to create queries.
+   */
+  public static class Builder {
+    private String expr;
+    private boolean xpath;
+    private boolean tag;
+    private boolean text;
+    private boolean rect;
+    private boolean displayed;
+    private final List<String> attributes = new ArrayList<String>();
+    private int offset = 0;
+    private int limit = -1;
+
+    /**
+     * Find elements matching a CSS selector.
+     *
+     * @param selector
+     * @return this Builder
+     */
+    public Builder cssSelector(String selector) {
+      this.expr = selector;
+      this.xpath = false;
+      return this;
+    }
+
+    /**
+     * Find elements matching an XPath expression.
+     *
+     * @param expr
+     * @return this Builder
+     */
+    public Builder xpath(String expr) {
+      this.expr = expr;
+      this.xpath = true;
+      return this;
+    }
+
+    /**
+     * Read each element's lowercase tag name, as {@link org.openqa.selenium.WebElement#getTagName()} does.
+     *
+     * @return this Builder
+     */
+    public Builder tag() {
+      this.tag = true;
+      return this;
+    }
+
+    /**
+     * Read each element's visible text, as {@link org.openqa.selenium.WebElement#getText()} does.
+     *
+     * @return this Builder
+     */
+    public Builder text() {
+      this.text = true;
+      return this;
+    }
+
+    /**
+     * Read each element's location and size, as {@link org.openqa.selenium.WebElement#getRect()} does.
+     *
+     * @return this Builder
+     */
+    public Builder rect() {
+      this.rect = true;
+      return this;
+    }
+
+    /**
+     * Read whether each element is visible, as {@link org.openqa.selenium.WebElement#isDisplayed()} does.
+     *
+     * @return this Builder
+     */
+    public Builder displayed() {
+      this.displayed = true;
+      return this;
+    }
+
+    /**
+     * Read these attributes or properties of each element, as {@link org.openqa.selenium.WebElement#getAttribute(String)} does.
+     *
+     * @param names
+     * @return this Builder
+     */
+    public Builder attributes(String... names) {
+      this.attributes.addAll(Arrays.asList(names));
+      return this;
+    }
+
+    /**
+     * Skip this many matching elements.
+     * <p>
+     * Defaults to <code>0</code>
+     *
+     * @param offset
+     * @return this Builder
+     */
+    public Builder offset(int offset) {
+      this.offset = offset;
+      return this;
+    }
+
+    /**
+     * Return at most this many elements. Negative values return all of them.
+     * <p>
+     * Defaults to <code>-1</code>
+     *
+     * @param limit
+     * @return this Builder
+     */
+    public Builder limit(int limit) {
+      this.limit = limit;
+      return this;
+    }
+
+    /**
+     * @return the query
+     */
+    public ElementQuery build() {
+      if (expr == null) {
+        throw new IllegalStateException("A CSS selector or XPath expression is required.");
+      }
+      if (!tag && !text && !rect && !displayed && attributes.isEmpty()) {
+        throw new IllegalStateException("At least one value to read from each element is required.");
+      }
+      for (String attribute : attributes) {
+        if (attribute == null || attribute.isEmpty() || attribute.indexOf('\n') > -1) {
+          throw new IllegalStateException("Invalid attribute name: " + attribute);
+        }
+      }
+      return new ElementQuery(this);
+    }
+  }
+
+  /**
+   * Create a Builder which is used to construct a query.
+   *
+   * @return Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private ElementQuery(Builder builder) {
+    this.expr = builder.expr;
+    this.xpath = builder.xpath;
+    this.tag = builder.tag;
+    this.text = builder.text;
+    this.rect = builder.rect;
+    this.displayed = builder.displayed;
+    this.attributes = Collections.unmodifiableList(new ArrayList<String>(builder.attributes));
+    this.offset = Math.max(0, builder.offset);
+    this.limit = builder.limit;
+  }
+
+  String expr() {
+    return expr;
+  }
+
+  boolean xpath() {
+    return xpath;
+  }
+
+  boolean tag() {
+    return tag;
+  }
+
+  boolean text() {
+    return text;
+  }
+
+  boolean rect() {
+    return rect;
+  }
+
+  boolean displayed() {
+    return displayed;
+  }
+
+  List<String> attributes() {
+    return attributes;
+  }
+
+  int offset() {
+    return offset;
+  }
+
+  int limit() {
+    return limit;
+  }
+
+  /**
+   * @return number of values read per element
+   */
+  int width() {
+    return (tag ? 1 : 0) + (text ? 1 : 0) + (rect ? 4 : 0) + (displayed ? 1 : 0) + attributes.size();
+  }
+}
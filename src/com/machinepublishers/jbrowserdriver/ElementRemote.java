@@ -101,6 +101,10 @@ interface ElementRemote extends Remote {
 
   byte[] getScreenshot() throws WebDriverException, RemoteException;
 
+  Screenshot getScreenshot(ImageFormat format) throws WebDriverException, RemoteException;
+
+  List<ElementRow> query(ElementQuery query) throws RemoteException;
+
   int remoteHashCode() throws RemoteException;
 
   boolean remoteEquals(ElementId id) throws RemoteException;
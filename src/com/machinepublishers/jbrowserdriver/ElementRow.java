@@ -0,0 +1,95 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values read from one element by an {@link ElementQuery}.
+ * Values which the query didn't ask for are null.
+ */
+public class ElementRow implements Serializable {
+  private final String tag;
+  private final String text;
+  private final Rectangle rect;
+  private final Boolean displayed;
+  private final LinkedHashMap<String, String> attributes;
+
+  ElementRow(String tag, String text, Rectangle rect, Boolean displayed, LinkedHashMap<String, String> attributes) {
+    this.tag = tag;
+    this.text = text;
+    this.rect = rect;
+    this.displayed = displayed;
+    this.attributes = attributes;
+  }
+
+  /**
+   * @return lowercase tag name
+   */
+  public String getTagName() {
+    return tag;
+  }
+
+  /**
+   * @return visible text
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * @return location and size
+   */
+  public org.openqa.selenium.Rectangle getRect() {
+    return rect == null ? null : rect.toSelenium();
+  }
+
+  /**
+   * @return whether the element is visible
+   */
+  public Boolean isDisplayed() {
+    return displayed;
+  }
+
+  /**
+   * @param name
+   * @return value of the attribute or property, or null if the element doesn't have it
+   */
+  public String getAttribute(String name) {
+    return attributes == null ? null : attributes.get(name);
+  }
+
+  /**
+   * @return attribute and property values in the order the query listed them, omitting those the element doesn't have
+   */
+  public Map<String, String> getAttributes() {
+    return attributes == null ? null : Collections.unmodifiableMap(attributes);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "ElementRow [tag=" + tag + ", text=" + text + ", rect=" + (rect == null ? null : rect.toSelenium())
+        + ", displayed=" + displayed + ", attributes=" + attributes + "]";
+  }
+}
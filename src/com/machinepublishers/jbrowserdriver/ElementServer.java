@@ -63,11 +63,10 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
     FindsByCssSelector, FindsByTagName, FindsByXPath {
 
   private static final String IS_VISIBLE;
+  private static final String QUERY;
 
   static {
     StringBuilder builder = new StringBuilder();
-    builder.append("var me = this;");
-    builder.append("(function(){");
     //The following JavaScript is Copyright 2011-2015 Software Freedom Conservancy and Copyright 2004-2011 Selenium committers.
     //Adapted and modified from https://github.com/SeleniumHQ/selenium/blob/master/javascript/selenium-core/scripts/selenium-api.js
     builder.append("var findEffectiveStyle = function(element) {");
@@ -116,17 +115,71 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
     builder.append("  var visibility = findEffectiveStyleProperty(element, \"visibility\");");
     builder.append("  return (visibility != \"hidden\" && isDisplayed(element));");
     builder.append("};");
-    builder.append("return isVisible(me);");
-    builder.append("})();");
-    IS_VISIBLE = builder.toString();
+    final String visibility = builder.toString();
+    IS_VISIBLE = new StringBuilder()
+        .append("(function(){")
+        .append(visibility)
+        .append("return isVisible(this);")
+        .append("})").toString();
+
+    builder = new StringBuilder();
+    builder.append("(function(expr, xpath, offset, limit, tag, text, rect, displayed, attrs){");
+    builder.append(visibility);
+    builder.append("var me = this;");
+    builder.append("var found = [];");
+    builder.append("if (xpath) {");
+    builder.append("  var snapshot = (me.ownerDocument || me).evaluate(");
+    builder.append("      expr, me, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);");
+    builder.append("  var end = limit < 0 ? snapshot.snapshotLength : Math.min(snapshot.snapshotLength, offset + limit);");
+    builder.append("  for (var i = offset; i < end; i++) {");
+    builder.append("    found.push(snapshot.snapshotItem(i));");
+    builder.append("  }");
+    builder.append("} else {");
+    builder.append("  var all = me.querySelectorAll(expr);");
+    builder.append("  var end = limit < 0 ? all.length : Math.min(all.length, offset + limit);");
+    builder.append("  for (var i = offset; i < end; i++) {");
+    builder.append("    found.push(all[i]);");
+    builder.append("  }");
+    builder.append("}");
+    builder.append("var names = attrs ? attrs.split('\\n') : [];");
+    builder.append("var values = [];");
+    builder.append("for (var i = 0; i < found.length; i++) {");
+    builder.append("  var element = found[i];");
+    builder.append("  var visible = (text || displayed) ? isVisible(element) : false;");
+    builder.append("  if (tag) {");
+    builder.append("    values.push(element.tagName ? String(element.tagName).toLowerCase() : null);");
+    builder.append("  }");
+    builder.append("  if (text) {");
+    builder.append("    var value = visible ? element[element.tagName == 'TEXTAREA' ? 'textContent' : 'innerText'] : '';");
+    builder.append("    values.push(typeof value == 'string' ? value.trim() : '');");
+    builder.append("  }");
+    builder.append("  if (rect) {");
+    builder.append("    var box = element.getBoundingClientRect();");
+    builder.append("    var x = Math.round(box.left);");
+    builder.append("    var y = Math.round(box.top);");
+    builder.append("    values.push(x + 1, y + 1, Math.round(box.right) - x, Math.round(box.bottom) - y);");
+    builder.append("  }");
+    builder.append("  if (displayed) {");
+    builder.append("    values.push(visible);");
+    builder.append("  }");
+    builder.append("  for (var j = 0; j < names.length; j++) {");
+    builder.append("    var value = element[names[j]];");
+    builder.append("    if (value === undefined || value === null || String(value) === '') {");
+    builder.append("      value = element.getAttribute ? element.getAttribute(names[j]) : null;");
+    builder.append("    }");
+    builder.append("    values.push(value === undefined || value === null || String(value) === '' ? null : String(value));");
+    builder.append("  }");
+    builder.append("}");
+    builder.append("return values;");
+    builder.append("})");
+    QUERY = builder.toString();
   }
 
   private static final String SCROLL_INTO_VIEW;
   static {
     StringBuilder builder = new StringBuilder();
-    builder.append("var me = this;");
     builder.append("(function(){");
-    builder.append("  var rect = me.getBoundingClientRect();");
+    builder.append("  var rect = this.getBoundingClientRect();");
     builder.append("  if(rect");
     builder.append("      && (rect.top < 0");
     builder.append("      || rect.left < 0");
@@ -134,11 +187,13 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
     builder.append("      || rect.right > window.innerWidth");
     builder.append("      || rect.bottom > document.documentElement.clientHeight");
     builder.append("      || rect.right > document.documentElement.clientWidth)) {");
-    builder.append("    me.scrollIntoView();");
+    builder.append("    this.scrollIntoView();");
     builder.append("  }");
-    builder.append("})();");
+    builder.append("})");
     SCROLL_INTO_VIEW = builder.toString();
   }
+  private static final String ELEMENT_FROM_POINT = "(function(x, y){return document.elementFromPoint(x, y);})";
+  private static final String CSS_VALUE = "(function(name){return window.getComputedStyle(this).getPropertyValue(name);})";
   private static final Pattern rgb = Pattern.compile(
       "rgb\\(([0-9]{1,3}), ([0-9]{1,3}), ([0-9]{1,3})\\)");
   private static final Map<ElementId, ElementServer> map = new HashMap<ElementId, ElementServer>();
@@ -224,7 +279,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   public void click() {
     AppThread.exec(contextItem.statusCode, () -> {
       validate(false);
-      node.eval(SCROLL_INTO_VIEW);
+      call(SCROLL_INTO_VIEW);
       if (contextItem.context.get().keyboard.get().isShiftPressed()) {
         node.eval(
             new StringBuilder()
@@ -271,8 +326,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
         double clickX = (left + right) / 2d;
         double clickY = (top + bottom) / 2d;
         ElementServer doc = ElementServer.create(contextItem);
-        if (!node.equals(doc.node.eval(
-            "(function(){return document.elementFromPoint(" + clickX + "," + clickY + ");})();"))) {
+        if (!node.equals(doc.call(ELEMENT_FROM_POINT, clickX, clickY))) {
           final Stage stage = contextItem.stage.get();
           final int minX = Math.max(0, (int) Math.floor(left));
           final int maxX = Math.min((int) Math.ceil(stage.getScene().getWidth()), (int) Math.ceil(right));
@@ -283,8 +337,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
           for (int x = minX; x <= maxX; x += incX) {
             boolean found = false;
             for (int y = minY; y <= maxY; y += incY) {
-              if (node.equals(doc.node.eval(
-                  "(function(){return document.elementFromPoint(" + x + "," + y + ");})();"))) {
+              if (node.equals(doc.call(ELEMENT_FROM_POINT, x, y))) {
                 clickX = x;
                 clickY = y;
                 found = true;
@@ -328,7 +381,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   public void sendKeys(final CharSequence... keys) {
     AppThread.exec(contextItem.statusCode, () -> {
       validate(true);
-      node.eval(SCROLL_INTO_VIEW);
+      call(SCROLL_INTO_VIEW);
       node.call("focus");
       return null;
     });
@@ -350,7 +403,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
     AppThread.exec(contextItem.statusCode, () -> {
       validate(false);
       contextItem.httpListener.get().resetStatusCode();
-      node.eval(SCROLL_INTO_VIEW);
+      call(SCROLL_INTO_VIEW);
       node.call("focus");
       node.eval("this.value='';");
       return null;
@@ -391,13 +444,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   public String getCssValue(final String name) {
     return AppThread.exec(contextItem.statusCode, () -> {
       validate(false);
-      return cleanUpCssVal((String) (node.eval(new StringBuilder()
-          .append("var me = this;")
-          .append("(function(){")
-          .append("  return window.getComputedStyle(me).getPropertyValue('")
-          .append(name)
-          .append("');")
-          .append("})();").toString())));
+      return cleanUpCssVal((String) call(CSS_VALUE, name));
     });
   }
 
@@ -496,7 +543,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   public String getText() {
     return AppThread.exec(contextItem.statusCode, () -> {
       validate(false);
-      if ((Boolean) node.eval(IS_VISIBLE)) {
+      if ((Boolean) call(IS_VISIBLE)) {
         String textAttribute = "TEXTAREA".equals(node.getMember("tagName")) ? "textContent" : "innerText";
         Object text = node.getMember(textAttribute);
         return text instanceof String ? ((String) text).trim() : "";
@@ -512,7 +559,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   public boolean isDisplayed() {
     return AppThread.exec(contextItem.statusCode, () -> {
       validate(false);
-      return (Boolean) node.eval(IS_VISIBLE);
+      return (Boolean) call(IS_VISIBLE);
     });
   }
 
@@ -844,7 +891,13 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   private static class JavascriptNames {
     private final String callbackVal = Util.randomPropertyName();
     private final String callback = Util.randomPropertyName();
-    private final String exec = Util.randomPropertyName();
+  }
+
+  /**
+   * Calls a function, compiled once per document, with this element as <code>this</code>.
+   */
+  private Object call(String function, Object... args) {
+    return contextItem.scripts.call(node, function, args);
   }
 
   private Object script(boolean callback, String script, Object[] args, final JavascriptNames jsNames) {
@@ -863,26 +916,19 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
       }
       try {
         if (callback) {
-          argList.add(null);
           node.eval(new StringBuilder().append("(function(){")
               .append("this.").append(jsNames.callback).append(" = function(){")
               .append(jsNames.callbackVal).append(" = arguments && arguments.length > 0? arguments[0] : null;")
               .append("}")
-              .append("}).apply(this);")
-              .append("this.").append(jsNames.exec).append(" = function(){")
-              .append("arguments[arguments.length-1] = this.").append(jsNames.callback).append(";")
-              .append("return (function(){").append(script).append("}).apply(this, arguments);")
-              .append("};").toString());
-        } else {
-          node.eval(new StringBuilder().append("this.").append(jsNames.exec).append(" = function(){")
-              .append("return (function(){").append(script).append("}).apply(this, arguments);")
-              .append("};").toString());
+              .append("}).apply(this);").toString());
+          argList.add(node.getMember(jsNames.callback));
         }
-        return node.call(jsNames.exec, argList.toArray(new Object[0]));
+        //newline ends a trailing line comment in the script
+        return call(new StringBuilder().append("(function(){").append(script).append("\n})").toString(),
+            argList.toArray(new Object[0]));
       } catch (Throwable t) {
         return t;
       } finally {
-        node.eval("delete " + "this." + jsNames.exec + ";");
         if (callback) {
           node.eval("delete " + "this." + jsNames.callback + ";");
         }
@@ -891,6 +937,14 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   }
 
   private Object parseScriptResult(final Object obj) {
+    return parseScriptResult(obj, true);
+  }
+
+  /**
+   * @param encode
+   *          whether to try converting JavaScript objects in one pass with {@link ScriptResults}
+   */
+  private Object parseScriptResult(final Object obj, final boolean encode) {
     return AppThread.exec(contextItem.statusCode, () -> {
       validate(false);
       AppThread.handleExecutionException(obj);
@@ -906,6 +960,18 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
         }
       }
       if (obj instanceof JSObject) {
+        if (encode) {
+          ScriptResults.Decoded decoded = null;
+          try {
+            decoded = ScriptResults.decode((JSObject) call(ScriptResults.ENCODE, obj),
+                cur -> parseScriptResult(cur, false));
+          } catch (Throwable t) {
+            LogsServer.instance().trace("Script result couldn't be encoded: " + t.getMessage());
+          }
+          if (decoded != null) {
+            return decoded.value;
+          }
+        }
         List<Object> list = new ArrayList<Object>();
         boolean isList = false;
         for (int i = 0;; i++) {
@@ -961,7 +1027,7 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
   public Point locate() {
     AppThread.exec(contextItem.statusCode, () -> {
       validate(false);
-      node.eval(SCROLL_INTO_VIEW);
+      call(SCROLL_INTO_VIEW);
       return null;
     });
     return AppThread.exec(contextItem.statusCode, () -> {
@@ -981,9 +1047,9 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
    * {@inheritDoc}
    */
   @Override
-  public <X> X getScreenshotAs(OutputType<X> arg0) throws WebDriverException {
-    LogsServer.instance().warn("Screenshot not supported on jBrowserDriver WebElements");
-    return null;
+  public <X> X getScreenshotAs(OutputType<X> outputType) throws WebDriverException {
+    byte[] bytes = getScreenshot();
+    return bytes == null ? null : outputType.convertFromPngBytes(bytes);
   }
 
   /**
@@ -991,8 +1057,81 @@ class ElementServer extends RemoteObject implements ElementRemote, WebElement,
    */
   @Override
   public byte[] getScreenshot() throws WebDriverException {
-    LogsServer.instance().warn("Screenshot not supported on jBrowserDriver WebElements");
-    return null;
+    Screenshot screenshot = getScreenshot(ImageFormat.PNG);
+    return screenshot == null ? null : screenshot.getBytes();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Screenshot getScreenshot(ImageFormat format) throws WebDriverException {
+    AppThread.exec(contextItem.statusCode, () -> {
+      validate(false);
+      call(SCROLL_INTO_VIEW);
+      return null;
+    });
+    final int[] region = AppThread.exec(contextItem.statusCode, () -> {
+      validate(true);
+      JSObject obj = (JSObject) node.call("getBoundingClientRect");
+      double top = Double.parseDouble(obj.getMember("top").toString());
+      double bottom = Double.parseDouble(obj.getMember("bottom").toString());
+      double left = Double.parseDouble(obj.getMember("left").toString());
+      double right = Double.parseDouble(obj.getMember("right").toString());
+      final org.openqa.selenium.Point frameLocation = contextItem.selectedFrameLocation();
+      int x = (int) Math.floor(left) + frameLocation.getX();
+      int y = (int) Math.floor(top) + frameLocation.getY();
+      return new int[] { x, y,
+          (int) Math.ceil(right) + frameLocation.getX() - x,
+          (int) Math.ceil(bottom) + frameLocation.getY() - y };
+    });
+    return contextItem.context.get().robot.get().screenshot(format, region);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<ElementRow> query(final ElementQuery query) {
+    return AppThread.exec(contextItem.statusCode, () -> {
+      validate(false);
+      JSObject values = (JSObject) call(QUERY,
+          query.expr(), query.xpath(), query.offset(), query.limit(),
+          query.tag(), query.text(), query.rect(), query.displayed(),
+          StringUtils.join(query.attributes(), '\n'));
+      int length = ((Number) values.getMember("length")).intValue();
+      int stride = query.width();
+      List<ElementRow> rows = new ArrayList<ElementRow>(stride == 0 ? 0 : length / stride);
+      for (int i = 0; stride > 0 && i + stride <= length;) {
+        String tag = query.tag() ? string(values.getSlot(i++)) : null;
+        String text = query.text() ? string(values.getSlot(i++)) : null;
+        Rectangle rect = null;
+        if (query.rect()) {
+          int x = ((Number) values.getSlot(i++)).intValue();
+          int y = ((Number) values.getSlot(i++)).intValue();
+          int rectWidth = ((Number) values.getSlot(i++)).intValue();
+          int rectHeight = ((Number) values.getSlot(i++)).intValue();
+          rect = new Rectangle(x, y, rectHeight, rectWidth);
+        }
+        Boolean displayed = query.displayed() ? Boolean.TRUE.equals(values.getSlot(i++)) : null;
+        LinkedHashMap<String, String> attributes = null;
+        if (!query.attributes().isEmpty()) {
+          attributes = new LinkedHashMap<String, String>();
+          for (String name : query.attributes()) {
+            String value = string(values.getSlot(i++));
+            if (value != null) {
+              attributes.put(name, value);
+            }
+          }
+        }
+        rows.add(new ElementRow(tag, text, rect, displayed, attributes));
+      }
+      return rows;
+    });
+  }
+
+  private static String string(Object obj) {
+    return obj == null || (obj instanceof String && "undefined".equals(obj)) ? null : obj.toString();
   }
 
   /**
@@ -0,0 +1,137 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.html.HTMLFrameElement;
+import org.w3c.dom.html.HTMLIFrameElement;
+
+import netscape.javascript.JSObject;
+
+/**
+ * Index of the documents in a page's frames, mapping each document to the frame elements containing it.
+ * <p>
+ * The index is rebuilt lazily after {@link HttpListener} sees a frame start loading. Frames can also be
+ * removed or replaced by scripts without a load event, so a lookup checks the cached chain of frame elements
+ * against the DOM, which costs one call per level of nesting rather than a search of every frame on the page,
+ * and rebuilds the index if the chain is out of date.
+ * <p>
+ * Lookups call into the page, so they must be made on the JavaFX thread.
+ */
+class FrameTree {
+  private final Map<Document, List<Node>> frames = new HashMap<Document, List<Node>>();
+  private Document root;
+  private boolean dirty = true;
+
+  synchronized void invalidate() {
+    dirty = true;
+  }
+
+  /**
+   * @param root
+   *          the page's top-level document
+   * @param target
+   *          a document in the page or one of its frames
+   * @return frame elements containing the target, innermost first, which is empty for the top-level document;
+   *         or null if the target isn't in the page
+   */
+  synchronized List<Node> ancestors(Document root, Document target) {
+    if (root == null || target == null) {
+      return null;
+    }
+    if (target.equals(root)) {
+      return Collections.emptyList();
+    }
+    boolean rebuilt = false;
+    if (dirty || !root.equals(this.root)) {
+      rebuild(root);
+      rebuilt = true;
+    }
+    List<Node> ancestors = frames.get(target);
+    if (ancestors != null && isCurrent(root, target, ancestors)) {
+      return ancestors;
+    }
+    if (!rebuilt) {
+      rebuild(root);
+      ancestors = frames.get(target);
+      if (ancestors != null && isCurrent(root, target, ancestors)) {
+        return ancestors;
+      }
+    }
+    return null;
+  }
+
+  private void rebuild(Document root) {
+    frames.clear();
+    this.root = root;
+    dirty = false;
+    index(root, Collections.<Node> emptyList());
+  }
+
+  private void index(Document doc, List<Node> ancestors) {
+    frames.put(doc, ancestors);
+    index(doc, doc.getElementsByTagName("frame"), ancestors);
+    index(doc, doc.getElementsByTagName("iframe"), ancestors);
+  }
+
+  private void index(Document doc, NodeList elements, List<Node> ancestors) {
+    for (int i = 0; elements != null && i < elements.getLength(); i++) {
+      Node element = elements.item(i);
+      Document content = contentDocument(element);
+      if (content != null && !frames.containsKey(content)) {
+        List<Node> contentAncestors = new ArrayList<Node>(ancestors.size() + 1);
+        contentAncestors.add(element);
+        contentAncestors.addAll(ancestors);
+        index(content, Collections.unmodifiableList(contentAncestors));
+      }
+    }
+  }
+
+  private static boolean isCurrent(Document root, Document target, List<Node> ancestors) {
+    Document expected = target;
+    for (Node element : ancestors) {
+      if (!expected.equals(contentDocument(element))) {
+        return false;
+      }
+      Document owner = element.getOwnerDocument();
+      if (!(owner instanceof JSObject) || !Boolean.TRUE.equals(((JSObject) owner).call("contains", element))) {
+        return false;
+      }
+      expected = owner;
+    }
+    return expected.equals(root);
+  }
+
+  static Document contentDocument(Object node) {
+    if (node instanceof HTMLFrameElement) {
+      return ((HTMLFrameElement) node).getContentDocument();
+    }
+    if (node instanceof HTMLIFrameElement) {
+      return ((HTMLIFrameElement) node).getContentDocument();
+    }
+    return null;
+  }
+}
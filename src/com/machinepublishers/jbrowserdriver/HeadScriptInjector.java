@@ -0,0 +1,256 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.SSLProtocolException;
+
+import org.apache.http.ConnectionClosedException;
+
+/**
+ * Inserts the user script into the head of an HTML document as the document is read.
+ * <p>
+ * The first {@link HeadScriptInjector#LOOK_AHEAD} bytes at most are held back while scanning
+ * for the first <code>&lt;head&gt;</code> tag (or failing that <code>&lt;html&gt;</code> or <code>&lt;body&gt;</code>).
+ * For ASCII-compatible charsets the scan works on the raw bytes and the script's bytes are spliced in
+ * without decoding anything. Other charsets (UTF-16, UTF-32, EBCDIC) decode the look-ahead window instead,
+ * up to its last complete character.
+ * The rest of the document passes straight through.
+ */
+class HeadScriptInjector extends InputStream {
+  static final int LOOK_AHEAD = 512 * 1024;
+  private static final int BUFFER_SIZE = 8192;
+  private static final byte[] HEAD = "head".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] HTML = "html".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] BODY = "body".getBytes(StandardCharsets.US_ASCII);
+  private static final int INCOMPLETE = -2;
+  private static final Pattern head = Pattern.compile("<head\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+  private static final Pattern html = Pattern.compile("<html\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+  private static final Pattern body = Pattern.compile("<body\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+  private static final String ASCII_PROBE = "<html><head></head><body>";
+
+  private final InputStream in;
+  private final String script;
+  private final String charset;
+  private byte[] window = new byte[BUFFER_SIZE];
+  private int count;
+  private boolean eof;
+  private InputStream out;
+
+  HeadScriptInjector(InputStream in, String script, String charset) {
+    this.in = in;
+    this.script = script;
+    this.charset = charset;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (out == null) {
+      out = scan();
+    }
+    return out.read();
+  }
+
+  @Override
+  public int read(byte[] bytes, int off, int len) throws IOException {
+    if (out == null) {
+      out = scan();
+    }
+    return out.read(bytes, off, len);
+  }
+
+  @Override
+  public int available() throws IOException {
+    return out == null ? 0 : out.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (out == null) {
+      in.close();
+    } else {
+      out.close();
+    }
+  }
+
+  private InputStream scan() throws IOException {
+    boolean asciiCompatible = Arrays.equals(ASCII_PROBE.getBytes(charset), ASCII_PROBE.getBytes(StandardCharsets.US_ASCII));
+    return asciiCompatible ? scanBytes() : scanDecoded();
+  }
+
+  private InputStream scanBytes() throws IOException {
+    int headEnd = -1;
+    int htmlEnd = -1;
+    boolean bodyFound = false;
+    int from = 0;
+    while (true) {
+      int i = from;
+      for (; i < count && headEnd == -1 && !bodyFound; i++) {
+        if (window[i] == '<') {
+          int headTag = tagEnd(i, HEAD);
+          int htmlTag = tagEnd(i, HTML);
+          int bodyTag = tagEnd(i, BODY);
+          if (headTag == INCOMPLETE || htmlTag == INCOMPLETE || bodyTag == INCOMPLETE) {
+            break;
+          }
+          headEnd = headTag;
+          htmlEnd = htmlEnd == -1 ? htmlTag : htmlEnd;
+          bodyFound = bodyTag != -1;
+        }
+      }
+      from = i;
+      if (headEnd != -1 || bodyFound || eof || count >= LOOK_AHEAD) {
+        break;
+      }
+      fill();
+    }
+    if (headEnd != -1) {
+      return splice(headEnd, script, "");
+    }
+    if (htmlEnd != -1) {
+      return splice(htmlEnd, "<head>" + script + "</head>", "");
+    }
+    if (bodyFound) {
+      return splice(0, "<html><head>" + script + "</head>", "</html>");
+    }
+    return splice(0, "", "");
+  }
+
+  /**
+   * Matches <code>&lt;name\b[^&gt;]*&gt;</code> case-insensitively at the given offset of the window.
+   *
+   * @return the offset just past the tag, -1 if there's no match, or {@link HeadScriptInjector#INCOMPLETE}
+   *         if more bytes are needed to decide
+   */
+  private int tagEnd(int start, byte[] name) {
+    int boundary = start + 1 + name.length;
+    for (int i = 0; i < name.length; i++) {
+      int pos = start + 1 + i;
+      if (pos >= count) {
+        return eof ? -1 : INCOMPLETE;
+      }
+      if ((window[pos] | 0x20) != name[i]) {
+        return -1;
+      }
+    }
+    if (boundary >= count) {
+      return eof ? -1 : INCOMPLETE;
+    }
+    byte next = window[boundary];
+    if ((next >= 'a' && next <= 'z') || (next >= 'A' && next <= 'Z') || (next >= '0' && next <= '9') || next == '_') {
+      return -1;
+    }
+    for (int i = boundary; i < count; i++) {
+      if (window[i] == '>') {
+        return i + 1;
+      }
+    }
+    return eof ? -1 : INCOMPLETE;
+  }
+
+  private InputStream scanDecoded() throws IOException {
+    String content = "";
+    int decoded = 0;
+    CharsetDecoder decoder = Charset.forName(charset).newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    while (!eof && count < LOOK_AHEAD) {
+      fill();
+      //decode whole characters only, leaving a trailing partial character to pass through as bytes
+      ByteBuffer bytes = ByteBuffer.wrap(window, 0, count);
+      CharBuffer chars = CharBuffer.allocate((int) (count * (double) decoder.maxCharsPerByte()) + 1);
+      decoder.reset().decode(bytes, chars, false);
+      chars.flip();
+      content = chars.toString();
+      decoded = bytes.position();
+      if (head.matcher(content).find() || body.matcher(content).find()) {
+        break;
+      }
+    }
+    String intercepted;
+    String suffix = "";
+    Matcher matcher = head.matcher(content);
+    if (matcher.find()) {
+      intercepted = matcher.replaceFirst(Matcher.quoteReplacement(matcher.group(0) + script));
+    } else if ((matcher = html.matcher(content)).find()) {
+      intercepted = matcher.replaceFirst(Matcher.quoteReplacement(matcher.group(0) + "<head>" + script + "</head>"));
+    } else if (body.matcher(content).find()) {
+      intercepted = "<html><head>" + script + "</head>" + content;
+      suffix = "</html>";
+    } else {
+      return rest(new ByteArrayInputStream(window, 0, count), "");
+    }
+    return rest(new SequenceInputStream(new ByteArrayInputStream(intercepted.getBytes(charset)),
+        new ByteArrayInputStream(window, decoded, count - decoded)), suffix);
+  }
+
+  private InputStream splice(int at, String insert, String suffix) throws IOException {
+    if (insert.isEmpty()) {
+      return rest(new ByteArrayInputStream(window, 0, count), suffix);
+    }
+    return rest(new SequenceInputStream(new ByteArrayInputStream(window, 0, at),
+        new SequenceInputStream(new ByteArrayInputStream(insert.getBytes(charset)),
+            new ByteArrayInputStream(window, at, count - at))),
+        suffix);
+  }
+
+  private InputStream rest(InputStream prefix, String suffix) throws IOException {
+    InputStream stream = new SequenceInputStream(prefix, in);
+    return suffix.isEmpty() ? stream : new SequenceInputStream(stream, new ByteArrayInputStream(continuation(suffix)));
+  }
+
+  /**
+   * Encodes text which follows other text, without the byte order mark some charsets (e.g., UTF-16) begin with.
+   */
+  private byte[] continuation(String text) throws IOException {
+    byte[] lead = " ".getBytes(charset);
+    byte[] bytes = (" " + text).getBytes(charset);
+    return Arrays.copyOfRange(bytes, lead.length, bytes.length);
+  }
+
+  private void fill() throws IOException {
+    if (count == window.length) {
+      window = Arrays.copyOf(window, window.length * 2);
+    }
+    int read;
+    try {
+      read = in.read(window, count, window.length - count);
+    } catch (EOFException | SSLProtocolException | ConnectionClosedException | SocketException e) {
+      read = -1;
+    }
+    if (read == -1) {
+      eof = true;
+    } else {
+      count += read;
+    }
+  }
+}
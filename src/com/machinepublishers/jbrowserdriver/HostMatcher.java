@@ -0,0 +1,183 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set of domains which matches a host if the host or any of its parent domains (with at least one dot) is in the set.
+ * <p>
+ * Domains are packed into one char array and indexed by an open-addressed hash table.
+ * The hash is computed over a domain's characters from last to first, so matching a host computes the hash
+ * of every parent domain in one pass from the end of the host. Matching doesn't allocate.
+ */
+class HostMatcher {
+  static final HostMatcher EMPTY = new HostMatcher(new ArrayList<String>());
+  private final char[] chars;
+  private final int[] starts;
+  private final int[] table;
+  private final int mask;
+
+  /**
+   * Loaded the first time a session blocks ads.
+   */
+  private static class AdHosts {
+    private static final HostMatcher matcher;
+    static {
+      List<String> hosts = new ArrayList<String>();
+      BufferedReader reader = null;
+      try {
+        reader = new BufferedReader(new InputStreamReader(
+            HostMatcher.class.getResourceAsStream("/com/machinepublishers/jbrowserdriver/ad-hosts.txt"),
+            StandardCharsets.UTF_8));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          hosts.add(line);
+        }
+      } catch (Throwable t) {
+        LogsServer.instance().exception(t);
+      } finally {
+        Util.close(reader);
+      }
+      matcher = new HostMatcher(hosts);
+    }
+  }
+
+  /**
+   * @return matcher of the hosts in ad-hosts.txt
+   */
+  static HostMatcher adHosts() {
+    return AdHosts.matcher;
+  }
+
+  HostMatcher(Collection<String> domains) {
+    int length = 0;
+    int count = 0;
+    for (String domain : domains) {
+      if (!domain.isEmpty()) {
+        length += domain.length();
+        ++count;
+      }
+    }
+    chars = new char[length];
+    starts = new int[count + 1];
+    int size = Integer.highestOneBit(Math.max(16, count * 2) - 1) << 1;
+    table = new int[size];
+    mask = size - 1;
+    int index = 0;
+    int pos = 0;
+    for (String domain : domains) {
+      if (!domain.isEmpty()) {
+        int start = pos;
+        for (int i = 0; i < domain.length(); i++) {
+          chars[pos++] = Character.toLowerCase(domain.charAt(i));
+        }
+        int hash = 0;
+        for (int i = pos - 1; i >= start; i--) {
+          hash = 31 * hash + chars[i];
+        }
+        starts[index] = start;
+        starts[index + 1] = pos;
+        if (!contains(hash, chars, start, pos - start)) {
+          add(hash, index);
+        }
+        ++index;
+      }
+    }
+  }
+
+  boolean isEmpty() {
+    return starts.length == 1;
+  }
+
+  /**
+   * @return whether the host or one of its parent domains is in this set
+   */
+  boolean matches(String host) {
+    if (host == null || isEmpty()) {
+      return false;
+    }
+    int hash = 0;
+    boolean dot = false;
+    for (int i = host.length() - 1; i >= 0; i--) {
+      char c = Character.toLowerCase(host.charAt(i));
+      hash = 31 * hash + c;
+      if (i > 0 && host.charAt(i - 1) == '.') {
+        if (dot && contains(hash, host, i)) {
+          return true;
+        }
+        dot = true;
+      } else if (i == 0 && dot && contains(hash, host, 0)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void add(int hash, int index) {
+    int slot = spread(hash) & mask;
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = index + 1;
+  }
+
+  private boolean contains(int hash, char[] domain, int offset, int length) {
+    for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int entry = table[slot] - 1;
+      int start = starts[entry];
+      if (starts[entry + 1] - start == length) {
+        int i = 0;
+        while (i < length && chars[start + i] == domain[offset + i]) {
+          ++i;
+        }
+        if (i == length) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean contains(int hash, String host, int offset) {
+    int length = host.length() - offset;
+    for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int entry = table[slot] - 1;
+      int start = starts[entry];
+      if (starts[entry + 1] - start == length) {
+        int i = 0;
+        while (i < length && chars[start + i] == Character.toLowerCase(host.charAt(offset + i))) {
+          ++i;
+        }
+        if (i == length) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolException;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Sends requests with OkHttp, which negotiates HTTP/2 with ALPN and multiplexes each origin's requests
+ * over one connection, and uses HTTP/1.1 with servers or JVMs which don't support HTTP/2.
+ * <p>
+ * It takes the place of HttpClient's main execution stage, so HttpClient's protocol interceptors
+ * (cookies, compression, and default headers) and its cache still process every request and response.
+ * Responses are reported to them as HTTP/1.1.
+ */
+class Http2Transport implements ClientExecChain {
+  private static final Set<String> connectionHeaders = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+      new String[] { "host", "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "te",
+          "content-length", "expect", "via" })));
+  private static final Set<String> bodyMethods = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+      new String[] { "POST", "PUT", "PATCH", "PROPPATCH", "REPORT" })));
+  private final OkHttpClient client;
+  private final Map<Proxy, OkHttpClient> proxied = new ConcurrentHashMap<Proxy, OkHttpClient>();
+
+  Http2Transport(Settings settings, SSLContext sslContext, DnsCache dns, StreamConnectionClient.ConnectionStats stats) {
+    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+        .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+        .followRedirects(false)
+        .followSslRedirects(false)
+        .connectTimeout(Math.max(0, settings.connectTimeout()), TimeUnit.MILLISECONDS)
+        .readTimeout(Math.max(0, settings.socketTimeout()), TimeUnit.MILLISECONDS)
+        .writeTimeout(Math.max(0, settings.socketTimeout()), TimeUnit.MILLISECONDS)
+        .connectionPool(new ConnectionPool(settings.maxConnections(), 30, TimeUnit.SECONDS))
+        .dns(host -> Arrays.asList(dns.resolve(host)))
+        .sslSocketFactory(sslContext.getSocketFactory(), trustManager())
+        .proxyAuthenticator((route, response) -> {
+          InetSocketAddress proxy = route == null ? null : (InetSocketAddress) route.proxy().address();
+          Credentials credentials = proxy == null ? null
+              : ProxyAuth.instance().getCredentials(new AuthScope(proxy.getHostString(), proxy.getPort()));
+          if (credentials == null || response.request().header("Proxy-Authorization") != null) {
+            return null;
+          }
+          return response.request().newBuilder().header("Proxy-Authorization", okhttp3.Credentials.basic(
+              credentials.getUserPrincipal().getName(), credentials.getPassword())).build();
+        })
+        .eventListener(new EventListener() {
+          @Override
+          public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            stats.connection(call.request().url().host() + ":" + call.request().url().port(),
+                protocol == null ? null : protocol.toString());
+          }
+        });
+    if (!settings.hostnameVerification()) {
+      builder.hostnameVerifier((host, session) -> true);
+    }
+    if (settings.getLocalIp() != null) {
+      builder.socketFactory(new LocalSocketFactory(settings.getLocalIp()));
+    }
+    client = builder.build();
+  }
+
+  /**
+   * OkHttp only uses this to clean certificate chains for pinning, which isn't configured.
+   * Certificates are verified by the SSL context, which may have its own trust material.
+   */
+  private static X509TrustManager trustManager() {
+    try {
+      TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      factory.init((KeyStore) null);
+      for (TrustManager trustManager : factory.getTrustManagers()) {
+        if (trustManager instanceof X509TrustManager) {
+          return (X509TrustManager) trustManager;
+        }
+      }
+    } catch (Throwable t) {
+      LogsServer.instance().exception(t);
+    }
+    throw new IllegalStateException("No X509TrustManager is available.");
+  }
+
+  /**
+   * Opens sockets bound to the local IP set by {@link Settings.Builder#localIp(InetAddress)}.
+   */
+  private static class LocalSocketFactory extends SocketFactory {
+    private final InetAddress localIp;
+
+    LocalSocketFactory(InetAddress localIp) {
+      this.localIp = localIp;
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+      Socket socket = new Socket();
+      socket.bind(new InetSocketAddress(localIp, 0));
+      return socket;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+      return new Socket(host, port, localIp, 0);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+      return new Socket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+      return new Socket(host, port, localIp, 0);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+      return new Socket(address, port, localAddress, localPort);
+    }
+  }
+
+  /**
+   * Response whose body is read from OkHttp, and which closes the OkHttp response when it's closed.
+   */
+  private static class Http2Response extends BasicHttpResponse implements CloseableHttpResponse {
+    private final Response response;
+
+    Http2Response(Response response) {
+      super(HttpVersion.HTTP_1_1, response.code(), response.message().isEmpty()
+          ? EnglishReasonPhraseCatalog.INSTANCE.getReason(response.code(), Locale.ENGLISH) : response.message());
+      this.response = response;
+      Headers headers = response.headers();
+      for (int i = 0; i < headers.size(); i++) {
+        addHeader(headers.name(i), headers.value(i));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      response.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CloseableHttpResponse execute(HttpRoute route, HttpRequestWrapper request, HttpClientContext context,
+      HttpExecutionAware execAware) throws IOException, HttpException {
+    URI uri;
+    try {
+      uri = URIUtils.rewriteURI(request.getURI(), route.getTargetHost(), true);
+    } catch (URISyntaxException e) {
+      throw new ProtocolException("Invalid URI: " + request.getRequestLine().getUri(), e);
+    }
+    String method = request.getRequestLine().getMethod();
+    Request.Builder builder = new Request.Builder().url(uri.toString());
+    for (Header header : request.getAllHeaders()) {
+      if (!connectionHeaders.contains(header.getName().toLowerCase(Locale.ENGLISH))) {
+        builder.addHeader(header.getName(), header.getValue());
+      }
+    }
+    HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+        ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+    RequestBody body = null;
+    if (entity != null && !"GET".equals(method) && !"HEAD".equals(method)) {
+      Header contentType = entity.getContentType();
+      body = RequestBody.create(contentType == null ? null : MediaType.parse(contentType.getValue()),
+          EntityUtils.toByteArray(entity));
+    } else if (bodyMethods.contains(method)) {
+      body = RequestBody.create(null, new byte[0]);
+    }
+    Call call = client(route, context).newCall(builder.method(method, body).build());
+    if (execAware != null) {
+      if (execAware.isAborted()) {
+        throw new RequestAbortedException("Request aborted");
+      }
+      execAware.setCancellable(() -> {
+        call.cancel();
+        return true;
+      });
+    }
+    Response response = call.execute();
+    Http2Response converted = new Http2Response(response);
+    int status = response.code();
+    if (response.body() != null && !"HEAD".equals(method) && status >= 200 && status != 204 && status != 304) {
+      BasicHttpEntity responseEntity = new BasicHttpEntity();
+      responseEntity.setContent(response.body().byteStream());
+      responseEntity.setContentLength(response.body().contentLength());
+      responseEntity.setContentType(converted.getFirstHeader("Content-Type"));
+      responseEntity.setContentEncoding(converted.getFirstHeader("Content-Encoding"));
+      converted.setEntity(responseEntity);
+    } else {
+      response.close();
+    }
+    return converted;
+  }
+
+  /**
+   * @return client which uses the proxy StreamConnection chose for the request, sharing this transport's connections
+   */
+  private OkHttpClient client(HttpRoute route, HttpClientContext context) {
+    Proxy proxy = Proxy.NO_PROXY;
+    InetSocketAddress socks = (InetSocketAddress) context.getAttribute("proxy.socks.address");
+    HttpHost proxyHost = route.getProxyHost();
+    if (socks != null) {
+      proxy = new Proxy(Proxy.Type.SOCKS, socks);
+    } else if (proxyHost != null) {
+      proxy = new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved(proxyHost.getHostName(), proxyHost.getPort()));
+    }
+    return proxied.computeIfAbsent(proxy, key -> client.newBuilder().proxy(key).build());
+  }
+
+  void shutDown() {
+    client.connectionPool().evictAll();
+  }
+}
@@ -68,7 +68,7 @@ class HttpListener implements LoadListenerClient {
     errors = Collections.unmodifiableMap(errorsTmp);
   }
 
-  private final Map<String, Long> resources = new HashMap<String, Long>();
+  private final PendingResources resources = new PendingResources();
   private final ContextItem contextItem;
   private final StatusCode statusCode;
   private final AtomicLong timeoutMS;
@@ -78,6 +78,7 @@ class HttpListener implements LoadListenerClient {
   private final AjaxListener ajaxListener;
   private final AtomicInteger newStatusCode = new AtomicInteger();
   private final AtomicBoolean started = new AtomicBoolean();
+  private final Session session = Session.current();
 
   HttpListener(ContextItem contextItem, StatusCode statusCode, AtomicLong timeoutMS) {
     this.contextItem = contextItem;
@@ -86,7 +87,7 @@ class HttpListener implements LoadListenerClient {
     this.statusMonitor = StatusMonitor.instance();
     this.logs = LogsServer.instance();
     this.ajaxListener = new AjaxListener(
-        this.started, this.newStatusCode, this.statusCode, this.resources, this.timeoutMS);
+        this.started, this.newStatusCode, this.statusCode, this.resources, this.timeoutMS, this.session);
   }
 
   void init() {
@@ -126,6 +127,16 @@ class HttpListener implements LoadListenerClient {
   @Override
   public void dispatchResourceLoadEvent(long frame, int state, String url,
       String contentType, double progress, int errorCode) {
+    Session prev = Session.bind(session);
+    try {
+      resourceLoadEvent(frame, state, url, contentType, progress, errorCode);
+    } finally {
+      Session.bind(prev);
+    }
+  }
+
+  private void resourceLoadEvent(long frame, int state, String url,
+      String contentType, double progress, int errorCode) {
     final Settings settings = SettingsManager.settings();
     if (settings == null) {
       throw new RuntimeException("Request made after browser closed. Ignoring...");
@@ -133,15 +144,16 @@ class HttpListener implements LoadListenerClient {
     synchronized (statusCode) {
       if (url.startsWith("http://") || url.startsWith("https://")) {
         if (state == LoadListenerClient.RESOURCE_STARTED) {
-          resources.put(frame + url, System.currentTimeMillis());
+          resources.start(frame + url, System.currentTimeMillis());
         } else if (state == LoadListenerClient.RESOURCE_FINISHED
             || state == LoadListenerClient.RESOURCE_FAILED) {
           String original = null;
           original = statusMonitor.originalFromRedirect(url);
-          resources.remove(frame + url);
+          resources.finish(frame + url, System.currentTimeMillis());
           if (original != null) {
-            resources.remove(frame + original);
+            resources.finish(frame + original, System.currentTimeMillis());
           }
+          statusCode.notifyAll();
         }
       }
     }
@@ -157,7 +169,7 @@ class HttpListener implements LoadListenerClient {
       statusCode.set(0);
       resources.clear();
       started.set(false);
-      StatusMonitor.instance().clear();
+      statusMonitor.clear();
       statusCode.notifyAll();
     }
   }
@@ -168,6 +180,16 @@ class HttpListener implements LoadListenerClient {
   @Override
   public void dispatchLoadEvent(final long frame, final int state, String url,
       String contentType, double progress, int errorCode) {
+    Session prev = Session.bind(session);
+    try {
+      loadEvent(frame, state, url, contentType, progress, errorCode);
+    } finally {
+      Session.bind(prev);
+    }
+  }
+
+  private void loadEvent(final long frame, final int state, String url,
+      String contentType, double progress, int errorCode) {
     final Settings settings = SettingsManager.settings();
     if (settings == null) {
       throw new RuntimeException("Request made after browser closed. Ignoring...");
@@ -181,22 +203,32 @@ class HttpListener implements LoadListenerClient {
           || state == LoadListenerClient.PAGE_REDIRECTED
           || state == LoadListenerClient.DOCUMENT_AVAILABLE) {
         started.set(true);
-        resources.put(frame + url, System.currentTimeMillis());
+        if (state != LoadListenerClient.PAGE_REDIRECTED) {
+          contextItem.framesChanged();
+          if (mainFrame == frame) {
+            contextItem.scripts.clear();
+          }
+        }
+        resources.start(frame + url, System.currentTimeMillis());
         statusMonitor.monitor(url);
         statusMonitor.addPrimaryDocument(mainFrame == frame, url);
       } else if (state == LoadListenerClient.PAGE_FINISHED
           || state == LoadListenerClient.LOAD_STOPPED
           || state == LoadListenerClient.LOAD_FAILED) {
         if (mainFrame == frame) {
+          if (state == LoadListenerClient.PAGE_FINISHED) {
+            session.pageLoaded();
+          }
           newStatusCode.set(statusMonitor.status(url));
         } else {
           newStatusCode.compareAndSet(0, statusMonitor.status(url));
         }
-        resources.remove(frame + url);
+        resources.finish(frame + url, System.currentTimeMillis());
         String original = statusMonitor.originalFromRedirect(url);
         if (original != null) {
-          resources.remove(frame + original);
+          resources.finish(frame + original, System.currentTimeMillis());
         }
+        statusCode.notifyAll();
       }
     }
     if (settings.logTrace()) {
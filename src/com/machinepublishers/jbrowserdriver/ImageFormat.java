@@ -0,0 +1,45 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+/**
+ * Formats for {@link JBrowserDriver#getScreenshot(ImageFormat)}.
+ */
+public enum ImageFormat {
+  /**
+   * PNG, compressed for size.
+   */
+  PNG,
+  /**
+   * PNG, compressed for speed. Several times faster to encode than {@link #PNG} and somewhat larger.
+   */
+  PNG_FAST,
+  /**
+   * JPEG at high quality. Lossy.
+   */
+  JPEG,
+  /**
+   * Uncompressed pixels, four bytes per pixel in red, green, blue, alpha order, row by row from the top left.
+   */
+  RGBA,
+  /**
+   * Uncompressed pixels, four bytes per pixel in blue, green, red, alpha order, row by row from the top left.
+   * This is the order pixels are captured in, so it's the cheapest format.
+   */
+  BGRA
+}
@@ -170,7 +170,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   Map<String, Object> capabilitiesMap = new HashMap<>(capabilities.asMap());
   capabilitiesMap.remove("proxy");
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.storeCapabilities(new MutableCapabilities(capabilitiesMap));
    }
   } catch (Throwable t) {
@@ -193,6 +193,68 @@ public class JBrowserDriver extends RemoteWebDriver {
 
  private HeartbeatServer heartbeatServer;
 
+ Session session() {
+  return driverServer.session();
+ }
+
+ boolean isQuit() {
+  return lock.expired.get();
+ }
+
+ /**
+  * @return number of browser actions currently waiting for a page load to finish before they run
+  */
+ public int actionsWaiting() {
+  return session().actionsWaiting();
+ }
+
+ /**
+  * @return number of browser actions which have waited for a page load to finish before they ran
+  */
+ public long actionsWaited() {
+  return session().actionsWaited();
+ }
+
+ /**
+  * @return total milliseconds browser actions have waited for page loads to finish
+  */
+ public long actionWaitMS() {
+  return session().actionWaitMS();
+ }
+
+ /**
+  * @return number of cached responses served from memory, or 0 if the memory cache is disabled
+  *         (see {@link Settings.Builder#cacheMemorySize(long)}). Counts start over when settings which
+  *         the HTTP client depends on are changed by {@link #reset(Settings)}.
+  */
+ public long cacheHits() {
+  MemoryHttpCache cache = memoryCache();
+  return cache == null ? 0 : cache.hits();
+ }
+
+ /**
+  * @return number of cache lookups which weren't in memory and went to the disk cache,
+  *         or 0 if the memory cache is disabled
+  */
+ public long cacheMisses() {
+  MemoryHttpCache cache = memoryCache();
+  return cache == null ? 0 : cache.misses();
+ }
+
+ /**
+  * @return number of responses dropped from the memory cache to make room for others,
+  *         or 0 if the memory cache is disabled
+  */
+ public long cacheEvictions() {
+  MemoryHttpCache cache = memoryCache();
+  return cache == null ? 0 : cache.evictions();
+ }
+
+ private MemoryHttpCache memoryCache() {
+  StreamConnectionClient client = session().client();
+  return client == null ? null : client.memoryCache();
+ }
+
  /**
   * Use {@link Settings#builder()} ...build() to create settings to pass to this
   * constructor.
@@ -203,6 +265,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   this.heartbeatServer = new HeartbeatServer();
   this.driverServer = this.onBuildJBrowserDriverServer();
   this.driverServer.setUp(settings);
+  this.lock.session = this.driverServer.session();
   this.remote = this.driverServer;
   heartbeatThread = new Thread(() -> {
    while (true) {
@@ -223,7 +286,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   heartbeatThread.start();
   LogsRemote logsRemote = null;
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     logsRemote = this.driverServer.logs();
    }
   } catch (Throwable t) {
@@ -238,7 +301,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   */
  public void init() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.init();
    }
   } catch (Throwable t) {
@@ -258,7 +321,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public void reset(final Settings settings) {
   // TODO clear out tmp files except cache
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.reset(settings);
    }
   } catch (Throwable t) {
@@ -280,7 +343,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   // TODO clear out tmp files except cache
   Settings settings = Settings.builder().build(capabilities);
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.reset(settings);
    }
   } catch (Throwable t) {
@@ -290,7 +353,7 @@ public class JBrowserDriver extends RemoteWebDriver {
    capabilities = new MutableCapabilities(capabilities);
   }
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.storeCapabilities(capabilities);
    }
   } catch (Throwable t) {
@@ -304,7 +367,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   */
  public void reset() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.reset();
    }
   } catch (Throwable t) {
@@ -318,7 +381,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public String getPageSource() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.getPageSource();
    }
   } catch (Throwable t) {
@@ -333,7 +396,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public String getCurrentUrl() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.getCurrentUrl();
    }
   } catch (Throwable t) {
@@ -347,7 +410,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   */
  public int getStatusCode() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.getStatusCode();
    }
   } catch (Throwable t) {
@@ -370,7 +433,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   */
  public void pageWait() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.pageWait();
    }
   } catch (Throwable t) {
@@ -384,7 +447,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public String getTitle() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.getTitle();
    }
   } catch (Throwable t) {
@@ -399,7 +462,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public void get(final String url) {
   log.debug("get:{}", url);
-  try {
+  try (SocketLock.Binding binding = lock.bound()) {
    remote.get(url);
   } catch (Throwable t) {
    Util.handleException(t);
@@ -428,7 +491,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementById(String id) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementById(id), this, lock);
    }
   } catch (Throwable t) {
@@ -444,7 +507,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsById(String id) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsById(id);
    }
    return Element.constructList(elements, this, lock);
@@ -460,7 +523,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementByXPath(String expr) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementByXPath(expr), this, lock);
    }
   } catch (Throwable t) {
@@ -476,7 +539,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsByXPath(String expr) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsByXPath(expr);
    }
    return Element.constructList(elements, this, lock);
@@ -492,7 +555,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementByLinkText(final String text) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementByLinkText(text), this, lock);
    }
   } catch (Throwable t) {
@@ -507,7 +570,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementByPartialLinkText(String text) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementByPartialLinkText(text), this, lock);
    }
   } catch (Throwable t) {
@@ -523,7 +586,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsByLinkText(String text) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsByLinkText(text);
    }
    return Element.constructList(elements, this, lock);
@@ -540,7 +603,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsByPartialLinkText(String text) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsByPartialLinkText(text);
    }
    return Element.constructList(elements, this, lock);
@@ -556,7 +619,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementByClassName(String cssClass) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementByClassName(cssClass), this, lock);
    }
   } catch (Throwable t) {
@@ -572,7 +635,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsByClassName(String cssClass) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsByClassName(cssClass);
    }
    return Element.constructList(elements, this, lock);
@@ -588,7 +651,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementByName(String name) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementByName(name), this, lock);
    }
   } catch (Throwable t) {
@@ -604,7 +667,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsByName(String name) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsByName(name);
    }
    return Element.constructList(elements, this, lock);
@@ -620,7 +683,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementByCssSelector(String expr) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementByCssSelector(expr), this, lock);
    }
   } catch (Throwable t) {
@@ -636,7 +699,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsByCssSelector(String expr) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsByCssSelector(expr);
    }
    return Element.constructList(elements, this, lock);
@@ -652,7 +715,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public WebElement findElementByTagName(String tagName) {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return Element.constructElement(remote.findElementByTagName(tagName), this, lock);
    }
   } catch (Throwable t) {
@@ -668,7 +731,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public List<WebElement> findElementsByTagName(String tagName) {
   try {
    List<ElementRemote> elements;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     elements = remote.findElementsByTagName(tagName);
    }
    return Element.constructList(elements, this, lock);
@@ -685,7 +748,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public Object executeAsyncScript(String script, Object... args) {
   try {
    Object result;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     result = remote.executeAsyncScript(script, Element.scriptParams(args));
    }
    return Element.constructObject(result, this, lock);
@@ -702,7 +765,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public Object executeScript(String script, Object... args) {
   try {
    Object result;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     result = remote.executeScript(script, Element.scriptParams(args));
    }
    return Element.constructObject(result, this, lock);
@@ -718,7 +781,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public org.openqa.selenium.interactions.Keyboard getKeyboard() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     KeyboardRemote keyboard = remote.getKeyboard();
     if (keyboard == null) {
      return null;
@@ -737,7 +800,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public org.openqa.selenium.interactions.Mouse getMouse() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     MouseRemote mouse = remote.getMouse();
     if (mouse == null) {
      return null;
@@ -756,7 +819,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public Capabilities getCapabilities() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.getCapabilities();
    }
   } catch (Throwable t) {
@@ -771,7 +834,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public void close() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.close();
    }
   } catch (Throwable t) {
@@ -789,7 +852,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public String getWindowHandle() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.getWindowHandle();
    }
   } catch (Throwable t) {
@@ -804,7 +867,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public Set<String> getWindowHandles() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.getWindowHandles();
    }
   } catch (Throwable t) {
@@ -820,7 +883,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public Options manage() {
   if (options.get() == null) {
    try {
-    synchronized (lock.validated()) {
+    try (SocketLock.Binding binding = lock.validated()) {
      OptionsRemote optionsRemote = remote.manage();
      if (optionsRemote == null) {
       return null;
@@ -842,7 +905,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public Navigation navigate() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     NavigationRemote navigation = remote.navigate();
     if (navigation == null) {
      return null;
@@ -898,7 +961,7 @@ public class JBrowserDriver extends RemoteWebDriver {
 
  private void saveData() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     OptionsRemote optionsRemote = remote.manage();
     Set<Cookie> cookiesLocal = optionsRemote.getCookies();
     LogsRemote logsRemote = optionsRemote.logs();
@@ -929,7 +992,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public void quit() {
   saveData();
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     remote.quit();
    }
   } catch (Throwable t) {
@@ -945,7 +1008,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  @Override
  public TargetLocator switchTo() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     TargetLocatorRemote locator = remote.switchTo();
     if (locator == null) {
      return null;
@@ -970,7 +1033,7 @@ public class JBrowserDriver extends RemoteWebDriver {
  public <X> X getScreenshotAs(final OutputType<X> outputType) throws WebDriverException {
   try {
    byte[] bytes;
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     bytes = remote.getScreenshot();
    }
    if (bytes == null) {
@@ -983,12 +1046,137 @@ public class JBrowserDriver extends RemoteWebDriver {
   }
  }
 
+ /**
+  * Captures the browser window in the given format. Raw formats skip encoding entirely, and
+  * {@link ImageFormat#PNG_FAST} is much cheaper to encode than the PNG produced by {@link #getScreenshotAs(OutputType)}.
+  * Encoding happens off the JavaFX thread, so other browsers aren't held up by it.
+  *
+  * @param format
+  * @return the screenshot, or null if capturing failed
+  */
+ public Screenshot getScreenshot(final ImageFormat format) throws WebDriverException {
+  try {
+   try (SocketLock.Binding binding = lock.validated()) {
+    return remote.getScreenshot(format);
+   }
+  } catch (Throwable t) {
+   Util.handleException(t);
+   return null;
+  }
+ }
+
+ /**
+  * Captures a region of the browser window. Only the region is rendered and encoded,
+  * so small regions are proportionally cheaper than full screenshots.
+  *
+  * @param format
+  * @param region
+  *          in window coordinates; parts outside the window are clipped
+  * @return the screenshot, or null if capturing failed or the region is outside the window
+  */
+ public Screenshot getScreenshot(final ImageFormat format, final org.openqa.selenium.Rectangle region) throws WebDriverException {
+  try {
+   try (SocketLock.Binding binding = lock.validated()) {
+    return remote.getScreenshot(format, new Rectangle(region));
+   }
+  } catch (Throwable t) {
+   Util.handleException(t);
+   return null;
+  }
+ }
+
+ /**
+  * Captures an element after scrolling it into view. Only the element's bounding box is rendered and encoded.
+  * Elements can also be captured as PNG with {@link WebElement#getScreenshotAs(OutputType)}.
+  *
+  * @param format
+  * @param element
+  *          an element found by this browser
+  * @return the screenshot, or null if capturing failed
+  */
+ public Screenshot getScreenshot(final ImageFormat format, final WebElement element) throws WebDriverException {
+  return element(element).getScreenshot(format);
+ }
+
+ /**
+  * Finds elements in the current frame and reads the values the query asks for from each one,
+  * all in a single pass inside the page.
+  *
+  * @param query
+  * @return one row per element found, in document order
+  */
+ public List<ElementRow> query(final ElementQuery query) {
+  try {
+   try (SocketLock.Binding binding = lock.validated()) {
+    return remote.query(query);
+   }
+  } catch (Throwable t) {
+   Util.handleException(t);
+   return new ArrayList<ElementRow>();
+  }
+ }
+
+ /**
+  * Finds descendants of an element and reads the values the query asks for from each one,
+  * all in a single pass inside the page.
+  *
+  * @param query
+  * @param element
+  *          an element found by this browser
+  * @return one row per element found, in document order
+  */
+ public List<ElementRow> query(final ElementQuery query, final WebElement element) {
+  return element(element).query(query);
+ }
+
+ private static Element element(WebElement element) {
+  Object unwrapped = Util.unwrap(element);
+  if (unwrapped instanceof Element) {
+   return (Element) unwrapped;
+  }
+  throw new WebDriverException("Element was not found by a JBrowserDriver: " + element);
+ }
+
+ /**
+  * Captures the browser's cookies and current URL. The snapshot can be restored into any browser
+  * with {@link #importSession(SessionSnapshot)}, including after a restart by saving it with
+  * {@link SessionSnapshot#writeTo(File)} or {@link SessionSnapshot#toBytes()}.
+  *
+  * @return the snapshot, or null if it couldn't be taken
+  */
+ public SessionSnapshot exportSession() {
+  try {
+   try (SocketLock.Binding binding = lock.validated()) {
+    return remote.exportSession();
+   }
+  } catch (Throwable t) {
+   Util.handleException(t);
+   return null;
+  }
+ }
+
+ /**
+  * Replaces the browser's cookies with those in a snapshot, all at once. The browser stays on its current page;
+  * to resume where the snapshot was taken, load {@link SessionSnapshot#getUrl()} afterwards.
+  *
+  * @param snapshot
+  */
+ public void importSession(final SessionSnapshot snapshot) {
+  try {
+   try (SocketLock.Binding binding = lock.validated()) {
+    remote.importSession(snapshot);
+   }
+  } catch (Throwable t) {
+   Util.handleException(t);
+  }
+ }
+
  /**
   * @return Temporary directory where cached pages are saved.
   */
  public File cacheDir() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.cacheDir();
    }
   } catch (Throwable t) {
@@ -1002,7 +1190,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   */
  public File attachmentsDir() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.attachmentsDir();
    }
   } catch (Throwable t) {
@@ -1016,7 +1204,7 @@ public class JBrowserDriver extends RemoteWebDriver {
   */
  public File mediaDir() {
   try {
-   synchronized (lock.validated()) {
+   try (SocketLock.Binding binding = lock.validated()) {
     return remote.mediaDir();
    }
   } catch (Throwable t) {
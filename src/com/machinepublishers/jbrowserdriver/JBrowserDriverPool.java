@@ -0,0 +1,388 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Pool of browsers which are started ahead of time and reused.
+ * <p>
+ * Browsers are leased with {@link #lease()} and handed back with {@link #release(JBrowserDriver)}.
+ * A released browser is reset on a background thread before it's leased again, so callers never wait for a reset.
+ * Browsers are retired and replaced once they've loaded a configured number of pages, or if resetting them fails.
+ * <p>
+ * Use {@link JBrowserDriverPool#builder()} to create a pool.
+ */
+public class JBrowserDriverPool implements Closeable {
+  private static final long MAX_WARM_RETRY_MS = 60 * 1000;
+  private final Settings settings;
+  private final int size;
+  private final long leaseTimeoutMS;
+  private final long maxPageLoads;
+  private final LinkedBlockingDeque<Pooled> idle = new LinkedBlockingDeque<Pooled>();
+  private final Map<JBrowserDriver, Pooled> leased = new ConcurrentHashMap<JBrowserDriver, Pooled>();
+  private final ScheduledThreadPoolExecutor worker;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicLong leases = new AtomicLong();
+  private final AtomicLong leaseWaitMS = new AtomicLong();
+  private final AtomicLong maxLeaseWaitMS = new AtomicLong();
+  private final AtomicLong retired = new AtomicLong();
+
+  private static class Pooled {
+    private final JBrowserDriver driver;
+    private final long startPageLoads;
+
+    Pooled(JBrowserDriver driver) {
+      this.driver = driver;
+      this.startPageLoads = driver.session().pageLoads();
+    }
+  }
+
+  /**
+   * Use this to create pools.
+   */
+  public static class Builder {
+    private Settings settings = Settings.builder().build();
+    private int size = 1;
+    private long leaseTimeoutMS = 60 * 1000;
+    private long maxPageLoads = 0;
+
+    /**
+     * Settings for the browsers in the pool. Browsers are reset to these settings whenever they're returned.
+     * <p>
+     * Defaults to <code>Settings.builder().build()</code>
+     *
+     * @param settings
+     * @return this Builder
+     */
+    public Builder settings(Settings settings) {
+      this.settings = settings;
+      return this;
+    }
+
+    /**
+     * Number of browsers to start and keep in the pool.
+     * <p>
+     * Defaults to <code>1</code>
+     *
+     * @param size
+     * @return this Builder
+     */
+    public Builder size(int size) {
+      this.size = size;
+      return this;
+    }
+
+    /**
+     * Milliseconds {@link JBrowserDriverPool#lease()} waits for a browser to become available.
+     * <p>
+     * Defaults to <code>60000</code>
+     *
+     * @param leaseTimeoutMS
+     * @return this Builder
+     */
+    public Builder leaseTimeout(long leaseTimeoutMS) {
+      this.leaseTimeoutMS = leaseTimeoutMS;
+      return this;
+    }
+
+    /**
+     * Retire a browser after it has loaded this many pages. Zero or less never retires browsers for this reason.
+     * Browsers share the JVM's heap, which has no per-browser measure, so this is how to bound the memory
+     * a long-lived browser accumulates.
+     * <p>
+     * Defaults to <code>0</code>
+     *
+     * @param maxPageLoads
+     * @return this Builder
+     */
+    public Builder maxPageLoads(long maxPageLoads) {
+      this.maxPageLoads = maxPageLoads;
+      return this;
+    }
+
+    /**
+     * Creates the pool and starts its browsers in the background.
+     *
+     * @return the pool
+     */
+    public JBrowserDriverPool build() {
+      return new JBrowserDriverPool(this);
+    }
+  }
+
+  /**
+   * Create a Builder which is used to construct a pool.
+   *
+   * @return Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private JBrowserDriverPool(Builder builder) {
+    this.settings = builder.settings;
+    this.size = builder.size;
+    this.leaseTimeoutMS = builder.leaseTimeoutMS;
+    this.maxPageLoads = builder.maxPageLoads;
+    //browser setup and reset mostly run on the JavaFX thread anyway, so one worker is enough
+    this.worker = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "JBrowserDriverPool");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.worker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    for (int i = 0; i < size; i++) {
+      worker.execute(() -> warm(0));
+    }
+  }
+
+  /**
+   * Leases a browser, waiting up to the pool's lease timeout for one to become available.
+   *
+   * @return the browser, which must be handed back with {@link #release(JBrowserDriver)}
+   * @throws TimeoutException
+   *           if no browser became available in time
+   * @throws WebDriverException
+   *           if the thread was interrupted while waiting, with an {@link InterruptedException} as the cause
+   */
+  public JBrowserDriver lease() {
+    return lease(leaseTimeoutMS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Leases a browser, waiting up to the given timeout for one to become available.
+   *
+   * @param timeout
+   * @param unit
+   * @return the browser, which must be handed back with {@link #release(JBrowserDriver)}
+   * @throws TimeoutException
+   *           if no browser became available in time
+   * @throws WebDriverException
+   *           if the thread was interrupted while waiting, with an {@link InterruptedException} as the cause
+   */
+  public JBrowserDriver lease(long timeout, TimeUnit unit) {
+    if (closed.get()) {
+      throw new IllegalStateException("Browser pool is closed.");
+    }
+    final long start = System.currentTimeMillis();
+    final long deadline = start + unit.toMillis(timeout);
+    waiting.incrementAndGet();
+    try {
+      while (true) {
+        Pooled pooled = null;
+        try {
+          pooled = idle.pollFirst(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new WebDriverException("Interrupted while waiting for a browser.", e);
+        }
+        if (pooled == null) {
+          throw new TimeoutException("Timeout of " + unit.toMillis(timeout) + "ms reached waiting for a browser.");
+        }
+        if (pooled.driver.isQuit()) {
+          retire(pooled);
+          continue;
+        }
+        long waited = System.currentTimeMillis() - start;
+        leases.incrementAndGet();
+        leaseWaitMS.addAndGet(waited);
+        maxLeaseWaitMS.accumulateAndGet(waited, Math::max);
+        leased.put(pooled.driver, pooled);
+        return pooled.driver;
+      }
+    } finally {
+      waiting.decrementAndGet();
+    }
+  }
+
+  /**
+   * Hands back a leased browser. It's reset in the background and then becomes available to lease again.
+   *
+   * @param driver
+   */
+  public void release(JBrowserDriver driver) {
+    final Pooled pooled = leased.remove(driver);
+    if (pooled == null) {
+      throw new IllegalStateException("Browser was not leased from this pool.");
+    }
+    if (closed.get()) {
+      quit(driver);
+    } else {
+      worker.execute(() -> recycle(pooled));
+    }
+  }
+
+  /**
+   * @return number of threads waiting to lease a browser
+   */
+  public int queueDepth() {
+    return waiting.get();
+  }
+
+  /**
+   * @return number of browsers ready to be leased
+   */
+  public int idle() {
+    return idle.size();
+  }
+
+  /**
+   * @return number of browsers currently leased
+   */
+  public int leased() {
+    return leased.size();
+  }
+
+  /**
+   * @return number of leases granted
+   */
+  public long leases() {
+    return leases.get();
+  }
+
+  /**
+   * @return total milliseconds callers have waited for leases
+   */
+  public long leaseWaitMS() {
+    return leaseWaitMS.get();
+  }
+
+  /**
+   * @return longest time in milliseconds a caller waited for a lease
+   */
+  public long maxLeaseWaitMS() {
+    return maxLeaseWaitMS.get();
+  }
+
+  /**
+   * @return number of browsers which have been retired and replaced
+   */
+  public long retired() {
+    return retired.get();
+  }
+
+  /**
+   * Quits idle browsers. Leased browsers are quit when they're released.
+   */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      worker.shutdown();
+      for (Pooled pooled = idle.pollFirst(); pooled != null; pooled = idle.pollFirst()) {
+        quit(pooled.driver);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "JBrowserDriverPool [size=" + size + ", idle=" + idle.size() + ", leased=" + leased.size()
+        + ", queueDepth=" + waiting.get() + ", leases=" + leases.get() + ", leaseWaitMS=" + leaseWaitMS.get()
+        + ", maxLeaseWaitMS=" + maxLeaseWaitMS.get() + ", retired=" + retired.get() + "]";
+  }
+
+  /**
+   * Starts a browser for the pool, retrying with exponential backoff until it succeeds or the pool is closed,
+   * so a failed start doesn't permanently shrink the pool.
+   */
+  private void warm(int failures) {
+    if (closed.get()) {
+      return;
+    }
+    JBrowserDriver driver = null;
+    try {
+      driver = new JBrowserDriver(settings);
+      driver.init();
+      offer(new Pooled(driver));
+    } catch (Throwable t) {
+      LogsServer.instance().exception(t);
+      if (driver != null) {
+        quit(driver);
+      }
+      try {
+        long delay = Math.min(MAX_WARM_RETRY_MS, 1000L << Math.min(failures, 16));
+        worker.schedule(() -> warm(failures + 1), delay, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        //the pool was closed
+      }
+    }
+  }
+
+  private void recycle(Pooled pooled) {
+    if (closed.get()) {
+      quit(pooled.driver);
+      return;
+    }
+    if (pooled.driver.isQuit()
+        || (maxPageLoads > 0 && pooled.driver.session().pageLoads() - pooled.startPageLoads >= maxPageLoads)) {
+      retire(pooled);
+      return;
+    }
+    try {
+      pooled.driver.reset(settings);
+    } catch (Throwable t) {
+      LogsServer.instance().exception(t);
+      retire(pooled);
+      return;
+    }
+    offer(pooled);
+  }
+
+  private void offer(Pooled pooled) {
+    //most recently used first, keeping the rest of the pool cold if demand is low
+    idle.addFirst(pooled);
+    if (closed.get() && idle.remove(pooled)) {
+      quit(pooled.driver);
+    }
+  }
+
+  private void retire(Pooled pooled) {
+    retired.incrementAndGet();
+    quit(pooled.driver);
+    if (!closed.get()) {
+      worker.execute(() -> warm(0));
+    }
+  }
+
+  private static void quit(JBrowserDriver driver) {
+    try {
+      if (!driver.isQuit()) {
+        driver.quit();
+      }
+    } catch (Throwable t) {
+      LogsServer.instance().exception(t);
+    }
+  }
+}
@@ -46,6 +46,10 @@ interface JBrowserDriverRemote extends Remote {
 
  byte[] getScreenshot() throws WebDriverException, RemoteException;
 
+ Screenshot getScreenshot(ImageFormat format) throws WebDriverException, RemoteException;
+
+ Screenshot getScreenshot(ImageFormat format, Rectangle region) throws WebDriverException, RemoteException;
+
  Capabilities getCapabilities() throws RemoteException;
 
  KeyboardRemote getKeyboard() throws RemoteException;
@@ -64,6 +68,12 @@ interface JBrowserDriverRemote extends Remote {
 
  List<ElementRemote> findElementsByCssSelector(String using) throws RemoteException;
 
+ List<ElementRow> query(ElementQuery query) throws RemoteException;
+
+ SessionSnapshot exportSession() throws RemoteException;
+
+ void importSession(SessionSnapshot snapshot) throws RemoteException;
+
  ElementRemote findElementByName(String using) throws RemoteException;
 
  List<ElementRemote> findElementsByName(String using) throws RemoteException;
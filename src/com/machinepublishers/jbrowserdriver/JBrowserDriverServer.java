@@ -19,9 +19,9 @@ package com.machinepublishers.jbrowserdriver;
 
 import java.io.File;
 import java.io.StringWriter;
-import java.net.CookieHandler;
 import java.net.URL;
 import java.rmi.registry.Registry;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -73,10 +73,14 @@ public class JBrowserDriverServer extends RemoteObject
   URL.setURLStreamHandlerFactory(new StreamHandler());
  }
 
- private CookieHandler cookieStore = new CookieStore();
+ private final Session session = Session.create();
 
  public void onConfigCookieStore() {
-  CookieManager.setDefault(this.cookieStore);
+  CookieManager.setDefault(Session.cookieHandler());
+ }
+
+ Session session() {
+  return session;
  }
 
  final AtomicReference<Context> context = new AtomicReference<Context>();
@@ -88,8 +92,14 @@ public class JBrowserDriverServer extends RemoteObject
  @Override
  public void setUp(final Settings settings) {
   this.settings = settings;
-  SettingsManager.register(settings);
-  context.set(new Context());
+  Session prev = Session.bind(session);
+  try {
+   SettingsManager.register(settings);
+   restoreCookies(settings);
+   context.set(new Context());
+  } finally {
+   Session.bind(prev);
+  }
  }
 
  @Override
@@ -118,7 +128,7 @@ public class JBrowserDriverServer extends RemoteObject
    return null;
   });
   Accessor.getPageFor(context.get().item().engine.get()).stop();
-  ((CookieStore) CookieManager.getDefault()).clear();
+  session.cookieStore().clear();
   StatusMonitor.instance().clear();
   LogsServer.instance().clear(null);
   SettingsManager.register(settings);
@@ -404,6 +414,15 @@ public class JBrowserDriverServer extends RemoteObject
   return ElementServer.create(context.get().item()).findElementsByCssSelector(expr);
  }
 
+ /**
+  * {@inheritDoc}
+  */
+ @Override
+ public List<ElementRow> query(ElementQuery query) {
+  init();
+  return ElementServer.create(context.get().item()).query(query);
+ }
+
  /**
   * {@inheritDoc}
   */
@@ -526,6 +545,69 @@ public class JBrowserDriverServer extends RemoteObject
  @Override
  public void quit() {
   getStatusCode();
+  saveCookies(SettingsManager.settings());
+  session.close();
+ }
+
+ /**
+  * {@inheritDoc}
+  */
+ @Override
+ public SessionSnapshot exportSession() {
+  return SessionSnapshot.create(currentUrl(), session.cookieStore().getCookies());
+ }
+
+ private String currentUrl() {
+  ContextItem item = context.get().item();
+  if (item != null && item.initialized.get()) {
+   return AppThread.exec(item.statusCode, () -> item.engine.get().getLocation());
+  }
+  return null;
+ }
+
+ /**
+  * {@inheritDoc}
+  */
+ @Override
+ public void importSession(SessionSnapshot snapshot) {
+  session.cookieStore().replaceAll(snapshot.cookies());
+ }
+
+ private static File cookieFile(Settings settings) {
+  return settings == null || !settings.persistCookies() || settings.userDataDirectory() == null
+    ? null : new File(settings.userDataDirectory(), "jbd-session.bin");
+ }
+
+ /**
+  * Saves the cookies which outlive the browser. Session cookies are left out, as a browser restart ends them.
+  */
+ private void saveCookies(Settings settings) {
+  File file = cookieFile(settings);
+  if (file != null) {
+   try {
+    List<org.apache.http.cookie.Cookie> persistent = new ArrayList<org.apache.http.cookie.Cookie>();
+    for (org.apache.http.cookie.Cookie cookie : session.cookieStore().getCookies()) {
+     if (cookie.isPersistent()) {
+      persistent.add(cookie);
+     }
+    }
+    file.getParentFile().mkdirs();
+    SessionSnapshot.create(currentUrl(), persistent).writeTo(file);
+   } catch (Throwable t) {
+    LogsServer.instance().exception(t);
+   }
+  }
+ }
+
+ private void restoreCookies(Settings settings) {
+  File file = cookieFile(settings);
+  if (file != null && file.isFile()) {
+   try {
+    importSession(SessionSnapshot.readFrom(file));
+   } catch (Throwable t) {
+    LogsServer.instance().exception(t);
+   }
+  }
  }
 
  /**
@@ -561,6 +643,26 @@ public class JBrowserDriverServer extends RemoteObject
   return context.get().robot.get().screenshot();
  }
 
+ /**
+  * {@inheritDoc}
+  */
+ @Override
+ public Screenshot getScreenshot(ImageFormat format) throws WebDriverException {
+  init();
+  return context.get().robot.get().screenshot(format);
+ }
+
+ /**
+  * {@inheritDoc}
+  */
+ @Override
+ public Screenshot getScreenshot(ImageFormat format, Rectangle region) throws WebDriverException {
+  init();
+  org.openqa.selenium.Rectangle rect = region.toSelenium();
+  return context.get().robot.get().screenshot(format,
+   new int[] { rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight() });
+ }
+
  /**
   * {@inheritDoc}
   */
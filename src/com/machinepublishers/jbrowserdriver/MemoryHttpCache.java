@@ -0,0 +1,258 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.client.cache.HttpCacheEntry;
+import org.apache.http.client.cache.HttpCacheStorage;
+import org.apache.http.client.cache.HttpCacheUpdateCallback;
+import org.apache.http.client.cache.HttpCacheUpdateException;
+
+/**
+ * Byte-budgeted in-memory cache in front of a disk cache. Writes go through to the disk cache.
+ */
+class MemoryHttpCache implements HttpCacheStorage {
+  private static final int ENTRY_OVERHEAD = 256;
+  private final HttpCacheStorage disk;
+  private final long maxBytes;
+  private final FrequencySketch sketch;
+  private final LinkedHashMap<String, Item> items = new LinkedHashMap<String, Item>(256, .75f, true);
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private long bytes;
+
+  MemoryHttpCache(HttpCacheStorage disk, long maxBytes, Settings.CacheMemoryPolicy policy, int expectedEntries) {
+    this.disk = disk;
+    this.maxBytes = maxBytes;
+    this.sketch = policy == Settings.CacheMemoryPolicy.TINY_LFU ? new FrequencySketch(expectedEntries) : null;
+  }
+
+  private static class Item {
+    private final HttpCacheEntry entry;
+    private final long weight;
+
+    Item(HttpCacheEntry entry, long weight) {
+      this.entry = entry;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Count-min sketch of 4-bit counters used by the TinyLFU admission policy:
+   * a new entry only displaces the least recently used entry if it has been requested more often.
+   * Counters are halved periodically so that old popularity fades.
+   */
+  private static class FrequencySketch {
+    private static final int[] SEEDS = new int[] { 0x97cb3127, 0xb4b82e39, 0x8ba0c4d5, 0xf1f17a3b };
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int expectedEntries) {
+      int length = Integer.highestOneBit(Math.max(64, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+      table = new long[length];
+      mask = length - 1;
+      sampleSize = 10 * length;
+    }
+
+    int frequency(String key) {
+      int hash = spread(key.hashCode());
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < SEEDS.length; i++) {
+        int index = index(hash, i);
+        frequency = Math.min(frequency, (int) ((table[index] >>> offset(hash, i)) & 0xfL));
+      }
+      return frequency;
+    }
+
+    void increment(String key) {
+      int hash = spread(key.hashCode());
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+        int index = index(hash, i);
+        int offset = offset(hash, i);
+        if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if (added && ++size == sampleSize) {
+        for (int i = 0; i < table.length; i++) {
+          table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+        }
+        size /= 2;
+      }
+    }
+
+    private int index(int hash, int i) {
+      int h = (hash + SEEDS[i]) * SEEDS[i];
+      return (h + (h >>> 16)) & mask;
+    }
+
+    private static int offset(int hash, int i) {
+      return (((hash >>> (i << 3)) & 0xf) << 2);
+    }
+
+    private static int spread(int hash) {
+      hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+      return (hash >>> 16) ^ hash;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public HttpCacheEntry getEntry(String key) throws IOException {
+    synchronized (items) {
+      if (sketch != null) {
+        sketch.increment(key);
+      }
+      Item item = items.get(key);
+      if (item != null) {
+        hits.incrementAndGet();
+        return item.entry;
+      }
+    }
+    misses.incrementAndGet();
+    HttpCacheEntry entry = disk.getEntry(key);
+    if (entry != null) {
+      admit(key, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putEntry(String key, HttpCacheEntry entry) throws IOException {
+    disk.putEntry(key, entry);
+    admit(key, entry);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void removeEntry(String key) throws IOException {
+    synchronized (items) {
+      Item item = items.remove(key);
+      if (item != null) {
+        bytes -= item.weight;
+      }
+    }
+    disk.removeEntry(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateEntry(String key, HttpCacheUpdateCallback callback) throws IOException, HttpCacheUpdateException {
+    final HttpCacheEntry[] updated = new HttpCacheEntry[1];
+    disk.updateEntry(key, existing -> {
+      updated[0] = callback.update(existing);
+      return updated[0];
+    });
+    admit(key, updated[0]);
+  }
+
+  /**
+   * @return number of lookups answered from memory
+   */
+  long hits() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of lookups passed to the disk cache
+   */
+  long misses() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of entries dropped from memory to make room for others
+   */
+  long evictions() {
+    return evictions.get();
+  }
+
+  private void admit(String key, HttpCacheEntry entry) {
+    synchronized (items) {
+      Item prev = items.remove(key);
+      if (prev != null) {
+        bytes -= prev.weight;
+      }
+      if (entry == null) {
+        return;
+      }
+      long weight = weigh(key, entry);
+      if (weight > maxBytes) {
+        return;
+      }
+      //the least recently used entries which make room, only evicted if the new entry is requested more often than each
+      int victims = 0;
+      long freed = 0;
+      int frequency = prev == null && sketch != null ? sketch.frequency(key) : -1;
+      for (Iterator<Map.Entry<String, Item>> it = items.entrySet().iterator(); bytes - freed + weight > maxBytes;) {
+        Map.Entry<String, Item> victim = it.next();
+        if (frequency != -1 && frequency <= sketch.frequency(victim.getKey())) {
+          return;
+        }
+        freed += victim.getValue().weight;
+        ++victims;
+      }
+      for (Iterator<Item> it = items.values().iterator(); victims > 0; --victims) {
+        bytes -= it.next().weight;
+        it.remove();
+        evictions.incrementAndGet();
+      }
+      items.put(key, new Item(entry, weight));
+      bytes += weight;
+    }
+  }
+
+  private static long weigh(String key, HttpCacheEntry entry) {
+    long weight = ENTRY_OVERHEAD + 2 * key.length();
+    for (Header header : entry.getAllHeaders()) {
+      weight += 2 * (header.getName().length() + header.getValue().length());
+    }
+    return weight + (entry.getResource() == null ? 0 : entry.getResource().length());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    synchronized (items) {
+      return "MemoryHttpCache [entries=" + items.size() + ", bytes=" + bytes + ", hits=" + hits.get()
+          + ", misses=" + misses.get() + ", evictions=" + evictions.get() + "]";
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.http.client.cache.HttpCacheEntry;
+import org.apache.http.client.cache.HttpCacheStorage;
+import org.apache.http.client.cache.HttpCacheUpdateCallback;
+import org.apache.http.client.cache.HttpCacheUpdateException;
+
+/**
+ * Cache storage which leaves the query parameters ignored by each host's {@link CachePolicy} out of its keys.
+ * <p>
+ * Keys are the request URI, prefixed with <code>{variant}</code> for the variants of a response
+ * which has a <code>Vary</code> header.
+ */
+class NormalizedHttpCache implements HttpCacheStorage {
+  private final HttpCacheStorage storage;
+  private final Settings settings;
+
+  NormalizedHttpCache(HttpCacheStorage storage, Settings settings) {
+    this.storage = storage;
+    this.settings = settings;
+  }
+
+  /**
+   * @return the URI without the query parameters its host's cache policy ignores
+   */
+  static String normalize(String uri, Settings settings) {
+    int query = uri.indexOf('?');
+    if (query == -1) {
+      return uri;
+    }
+    int hostStart = uri.indexOf("://");
+    hostStart = hostStart == -1 || hostStart > query ? 0 : hostStart + 3;
+    int hostEnd = hostStart;
+    while (hostEnd < query && uri.charAt(hostEnd) != '/') {
+      ++hostEnd;
+    }
+    String authority = uri.substring(hostStart, hostEnd);
+    String host = authority.substring(authority.lastIndexOf('@') + 1);
+    host = host.startsWith("[") || host.indexOf(':') == -1 ? host : host.substring(0, host.indexOf(':'));
+    Set<String> ignored = settings.cachePolicy(host).ignoredParams();
+    if (ignored.isEmpty()) {
+      return uri;
+    }
+    int fragment = uri.indexOf('#', query);
+    int queryEnd = fragment == -1 ? uri.length() : fragment;
+    StringBuilder kept = new StringBuilder(queryEnd - query);
+    for (String param : uri.substring(query + 1, queryEnd).split("&")) {
+      int equals = param.indexOf('=');
+      if (!param.isEmpty() && !ignored.contains(equals == -1 ? param : param.substring(0, equals))) {
+        kept.append(kept.length() == 0 ? '?' : '&').append(param);
+      }
+    }
+    return uri.substring(0, query) + kept + uri.substring(queryEnd);
+  }
+
+  private String key(String key) {
+    int variantEnd = key.startsWith("{") ? key.indexOf('}') + 1 : 0;
+    return variantEnd == 0 ? normalize(key, settings) : key.substring(0, variantEnd) + normalize(key.substring(variantEnd), settings);
+  }
+
+  @Override
+  public void putEntry(String key, HttpCacheEntry entry) throws IOException {
+    storage.putEntry(key(key), entry);
+  }
+
+  @Override
+  public HttpCacheEntry getEntry(String key) throws IOException {
+    return storage.getEntry(key(key));
+  }
+
+  @Override
+  public void removeEntry(String key) throws IOException {
+    storage.removeEntry(key(key));
+  }
+
+  @Override
+  public void updateEntry(String key, HttpCacheUpdateCallback callback) throws IOException, HttpCacheUpdateException {
+    storage.updateEntry(key(key), callback);
+  }
+}
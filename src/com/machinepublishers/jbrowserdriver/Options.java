@@ -42,7 +42,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public void addCookie(Cookie cookie) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.addCookie(cookie);
       }
     } catch (Throwable t) {
@@ -56,7 +56,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public void deleteAllCookies() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.deleteAllCookies();
       }
     } catch (Throwable t) {
@@ -70,7 +70,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public void deleteCookie(Cookie cookie) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.deleteCookie(cookie);
       }
     } catch (Throwable t) {
@@ -84,7 +84,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public void deleteCookieNamed(String name) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.deleteCookieNamed(name);
       }
     } catch (Throwable t) {
@@ -98,7 +98,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public Cookie getCookieNamed(String name) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.getCookieNamed(name);
       }
     } catch (Throwable t) {
@@ -113,7 +113,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public Set<Cookie> getCookies() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return remote.getCookies();
       }
     } catch (Throwable t) {
@@ -128,7 +128,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public ImeHandler ime() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         ImeHandlerRemote imeHandler = remote.ime();
         if (imeHandler == null) {
           return null;
@@ -155,7 +155,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public Timeouts timeouts() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         TimeoutsRemote timeouts = remote.timeouts();
         if (timeouts == null) {
           return null;
@@ -174,7 +174,7 @@ class Options implements org.openqa.selenium.WebDriver.Options {
   @Override
   public Window window() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         WindowRemote window = remote.window();
         if (window == null) {
           return null;
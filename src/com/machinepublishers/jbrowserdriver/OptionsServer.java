@@ -32,11 +32,9 @@ import org.apache.http.cookie.ClientCookie;
 import org.apache.http.impl.cookie.BasicClientCookie;
 import org.openqa.selenium.Cookie;
 
-import com.sun.webkit.network.CookieManager;
 
 class OptionsServer extends RemoteObject implements OptionsRemote,
     org.openqa.selenium.WebDriver.Options {
-  private static final CookieStore cookieStore = (CookieStore) CookieManager.getDefault();
   private final Context context;
   private final ImeHandlerServer imeHandler = new com.machinepublishers.jbrowserdriver.ImeHandlerServer();
   private final AtomicReference<com.machinepublishers.jbrowserdriver.TimeoutsServer> timeouts;
@@ -101,7 +99,7 @@ class OptionsServer extends RemoteObject implements OptionsRemote,
    */
   @Override
   public void addCookie(Cookie cookie) {
-    cookieStore.addCookie(convert(cookie));
+    Session.current().cookieStore().addCookie(convert(cookie));
   }
 
   /**
@@ -109,7 +107,7 @@ class OptionsServer extends RemoteObject implements OptionsRemote,
    */
   @Override
   public void deleteAllCookies() {
-    cookieStore.clear();
+    Session.current().cookieStore().clear();
   }
 
   /**
@@ -117,7 +115,7 @@ class OptionsServer extends RemoteObject implements OptionsRemote,
    */
   @Override
   public void deleteCookie(Cookie cookie) {
-    List<org.apache.http.cookie.Cookie> cookies = cookieStore.getCookies();
+    List<org.apache.http.cookie.Cookie> cookies = Session.current().cookieStore().getCookies();
     String toDelete = new StringBuilder().append(cookie.getDomain().toLowerCase())
         .append("\n").append(cookie.getName().toLowerCase())
         .append("\n").append(cookie.getPath().toLowerCase()).toString();
@@ -136,7 +134,7 @@ class OptionsServer extends RemoteObject implements OptionsRemote,
     tmp.setDomain(cookie.getDomain());
     tmp.setPath(cookie.getPath());
     tmp.setExpiryDate(new Date(0));
-    cookieStore.addCookie(tmp);
+    Session.current().cookieStore().addCookie(tmp);
   }
 
   /**
@@ -144,7 +142,7 @@ class OptionsServer extends RemoteObject implements OptionsRemote,
    */
   @Override
   public void deleteCookieNamed(String name) {
-    for (org.apache.http.cookie.Cookie cur : cookieStore.getCookies()) {
+    for (org.apache.http.cookie.Cookie cur : Session.current().cookieStore().getCookies()) {
       if (cur.getName().equals(name)) {
         removeFromCookieStore(cur);
       }
@@ -156,7 +154,7 @@ class OptionsServer extends RemoteObject implements OptionsRemote,
    */
   @Override
   public Cookie getCookieNamed(String name) {
-    for (org.apache.http.cookie.Cookie cur : cookieStore.getCookies()) {
+    for (org.apache.http.cookie.Cookie cur : Session.current().cookieStore().getCookies()) {
       if (cur.getName().equals(name)) {
         return convert(cur);
       }
@@ -170,7 +168,7 @@ class OptionsServer extends RemoteObject implements OptionsRemote,
   @Override
   public Set<Cookie> getCookies() {
     Set<Cookie> cookies = new LinkedHashSet<Cookie>();
-    for (org.apache.http.cookie.Cookie cur : cookieStore.getCookies()) {
+    for (org.apache.http.cookie.Cookie cur : Session.current().cookieStore().getCookies()) {
       cookies.add(convert(cur));
     }
     return cookies;
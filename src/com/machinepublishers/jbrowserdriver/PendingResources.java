@@ -0,0 +1,96 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resources of the current page which have started loading but not finished.
+ * <p>
+ * Start times only increase, so the oldest resource is always at the head of a FIFO
+ * and expiring resources which exceed the timeout is amortized constant time.
+ * <p>
+ * Not thread-safe: callers synchronize on the page's {@link StatusCode}.
+ */
+class PendingResources {
+  private final Map<String, Long> started = new HashMap<String, Long>();
+  private final ArrayDeque<Pending> order = new ArrayDeque<Pending>();
+  private long lastActivity = System.currentTimeMillis();
+
+  private static class Pending {
+    private final String key;
+    private final long time;
+
+    Pending(String key, long time) {
+      this.key = key;
+      this.time = time;
+    }
+  }
+
+  void start(String key, long time) {
+    started.put(key, time);
+    order.addLast(new Pending(key, time));
+    lastActivity = time;
+  }
+
+  void finish(String key, long time) {
+    if (started.remove(key) != null) {
+      lastActivity = time;
+    }
+  }
+
+  void clear() {
+    started.clear();
+    order.clear();
+    lastActivity = System.currentTimeMillis();
+  }
+
+  int size() {
+    return started.size();
+  }
+
+  long lastActivity() {
+    return lastActivity;
+  }
+
+  /**
+   * Drops resources which started loading more than <code>timeout</code> ms before <code>now</code>,
+   * treating them as if they finished now.
+   *
+   * @return the time the next pending resource will exceed the timeout, or <code>Long.MAX_VALUE</code>
+   */
+  long expire(long now, long timeout) {
+    while (!order.isEmpty()) {
+      Pending pending = order.peekFirst();
+      Long time = started.get(pending.key);
+      if (time == null || time != pending.time) {
+        //already finished or restarted
+        order.pollFirst();
+      } else if (now - pending.time > timeout) {
+        order.pollFirst();
+        started.remove(pending.key);
+        lastActivity = now;
+      } else {
+        return pending.time + timeout + 1;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+}
@@ -24,6 +24,7 @@ import javafx.util.Callback;
 class PopupHandler implements Callback<PopupFeatures, WebEngine> {
   private final JBrowserDriverServer driver;
   private final Context context;
+  private final Session session = Session.current();
 
   PopupHandler(final JBrowserDriverServer driver, final Context context) {
     this.driver = driver;
@@ -35,6 +36,11 @@ class PopupHandler implements Callback<PopupFeatures, WebEngine> {
    */
   @Override
   public WebEngine call(PopupFeatures features) {
-    return context.spawn(driver).engine.get();
+    Session prev = Session.bind(session);
+    try {
+      return context.spawn(driver).engine.get();
+    } finally {
+      Session.bind(prev);
+    }
   }
 }
@@ -0,0 +1,159 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * Opens connections to origins a page is about to use, so their TCP and TLS setup overlaps
+ * with parsing the page rather than following it.
+ * <p>
+ * Connections are opened through the client's pool and released to it idle, where requests lease them
+ * like any other kept-alive connection. No connection is opened for an origin which already has an idle
+ * connection or a preconnect underway. Preconnected connections which a request sends on are counted as used,
+ * and those still unused after {@link Preconnector#UNUSED_MS} or at shutdown as wasted.
+ */
+class Preconnector {
+  /**
+   * Most origins preconnected for one document.
+   */
+  static final int MAX_PER_PAGE = 6;
+  private static final long UNUSED_MS = 30 * 1000;
+  private static final long LEASE_TIMEOUT_MS = 1000;
+  private static final int DEFAULT_CONNECT_TIMEOUT_MS = 10 * 1000;
+  private static final ExecutorService connectors = Executors.newFixedThreadPool(4, runnable -> {
+    Thread thread = new Thread(runnable, "Preconnect");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final PoolingHttpClientConnectionManager manager;
+  private final Map<String, Long> unused = new ConcurrentHashMap<String, Long>();
+  private final Set<HttpRoute> connecting = ConcurrentHashMap.newKeySet();
+  private final AtomicLong opened = new AtomicLong();
+  private final AtomicLong used = new AtomicLong();
+  private final AtomicLong wasted = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
+  Preconnector(PoolingHttpClientConnectionManager manager) {
+    this.manager = manager;
+  }
+
+  /**
+   * Opens a connection to each origin in the background, unless one is already idle in the pool.
+   */
+  void preconnect(Collection<HttpHost> origins, InetAddress localIp, int connectTimeout) {
+    for (HttpHost origin : origins) {
+      HttpRoute route = new HttpRoute(origin, localIp, "https".equalsIgnoreCase(origin.getSchemeName()));
+      if (manager.getStats(route).getAvailable() > 0 || !connecting.add(route)) {
+        skipped.incrementAndGet();
+        continue;
+      }
+      connectors.execute(() -> {
+        try {
+          connect(route, connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECT_TIMEOUT_MS);
+        } finally {
+          connecting.remove(route);
+        }
+      });
+    }
+  }
+
+  private void connect(HttpRoute route, int connectTimeout) {
+    HttpClientConnection conn = null;
+    boolean reusable = false;
+    try {
+      conn = manager.requestConnection(route, null).get(LEASE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      if (conn.isOpen()) {
+        //an idle connection was returned to the pool in the meantime
+        skipped.incrementAndGet();
+        reusable = true;
+        return;
+      }
+      HttpClientContext context = HttpClientContext.create();
+      context.setAttribute(HttpClientContext.HTTP_ROUTE, route);
+      manager.connect(conn, route, connectTimeout, context);
+      manager.routeComplete(conn, route, context);
+      reusable = true;
+      opened.incrementAndGet();
+      if (conn instanceof ManagedHttpClientConnection) {
+        unused.put(((ManagedHttpClientConnection) conn).getId(), System.currentTimeMillis());
+      }
+    } catch (ConnectionPoolTimeoutException e) {
+      skipped.incrementAndGet();
+    } catch (Throwable t) {
+      failed.incrementAndGet();
+      LogsServer.instance().trace("Preconnect to " + route.getTargetHost() + " failed: " + t.getMessage());
+    } finally {
+      if (conn != null) {
+        if (!reusable) {
+          Util.close(conn);
+        }
+        manager.releaseConnection(conn, null, reusable ? UNUSED_MS : 0, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * Called with each connection a request is sent on.
+   */
+  void sending(HttpClientConnection conn) {
+    if (conn instanceof ManagedHttpClientConnection && !unused.isEmpty()
+        && unused.remove(((ManagedHttpClientConnection) conn).getId()) != null) {
+      used.incrementAndGet();
+    }
+  }
+
+  /**
+   * Counts preconnected connections as wasted if they've gone unused too long, or all of them.
+   */
+  void expire(boolean all) {
+    long cutoff = System.currentTimeMillis() - UNUSED_MS;
+    for (Iterator<Long> it = unused.values().iterator(); it.hasNext();) {
+      long time = it.next();
+      if (all || time < cutoff) {
+        it.remove();
+        wasted.incrementAndGet();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Preconnects opened: " + opened.get() + "; used: " + used.get() + "; wasted: " + wasted.get()
+        + "; skipped: " + skipped.get() + "; failed: " + failed.get();
+  }
+}
@@ -17,42 +17,60 @@
  */
 package com.machinepublishers.jbrowserdriver;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.InflaterInputStream;
 
+import javax.net.ssl.SSLProtocolException;
+
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.HttpHost;
 
 class ResponseHandler {
-  private static final Pattern head = Pattern.compile("<head\\b[^>]*>", Pattern.CASE_INSENSITIVE);
-  private static final Pattern html = Pattern.compile("<html\\b[^>]*>", Pattern.CASE_INSENSITIVE);
-  private static final Pattern body = Pattern.compile("<body\\b[^>]*>", Pattern.CASE_INSENSITIVE);
   private static final Set<Integer> redirectCodes = Collections.unmodifiableSet(
       new HashSet<Integer>(Arrays.asList(new Integer[] { 301, 302, 303, 307, 308 })));
+  private static final int BUFFER_SIZE = 8192;
 
+  /**
+   * Wraps the response body in a chain of streams (decompression, copies to disk, script injection)
+   * so that it's passed through to WebKit as it arrives rather than being buffered in full.
+   * Closing the returned stream closes the connection.
+   */
   static InputStream handleResponse(StreamConnection conn, InputStream inputStream) throws IOException {
     String url = conn.getURL().toExternalForm();
-    byte[] bytes = new byte[0];
+    InputStream content = inputStream;
     try {
       if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
-        bytes = Util.toBytes(new GZIPInputStream(inputStream));
+        content = new GZIPInputStream(content, BUFFER_SIZE);
       } else if ("deflate".equalsIgnoreCase(conn.getContentEncoding())) {
-        bytes = Util.toBytes(new InflaterInputStream(inputStream));
-      } else {
-        bytes = Util.toBytes(inputStream);
+        content = new InflaterInputStream(content);
+      }
+      if (content != inputStream) {
+        conn.removeContentEncoding();
+        conn.removeContentLength();
       }
-      conn.removeContentEncoding();
-      conn.setContentLength(bytes.length);
 
       Settings settings = SettingsManager.settings();
       if (settings != null) {
@@ -60,79 +78,271 @@ class ResponseHandler {
 
         if (settings.saveAttachments() && disposition != null
             && StatusMonitor.instance().isPrimaryDocument(true, url)) {
-          writeContentToDisk(bytes, StreamConnection.attachmentsDir(), url, conn.getContentTypeRaw(), disposition);
+          content = new DiskWriter(content, StreamConnection.attachmentsDir(), url, conn.getContentTypeRaw(), disposition);
         }
 
         if (settings.saveMedia() && ((StreamConnection) conn).isMedia()) {
-          writeContentToDisk(bytes, StreamConnection.mediaDir(), url, conn.getContentTypeRaw(), disposition);
+          content = new DiskWriter(content, StreamConnection.mediaDir(), url, conn.getContentTypeRaw(), disposition);
+        }
+
+        if (settings.quickRender() && ((StreamConnection) conn).isMedia()) {
+          LogsServer.instance().trace("Media discarded: " + url);
+          StatusMonitor.instance().addDiscarded(url);
+          Util.close(new BodyStream(content, conn));
+          conn.setContentLength(0);
+          return new ByteArrayInputStream(new byte[0]);
+        }
+
+        if (!redirectCodes.contains(conn.getResponseCode())
+            && (conn.getContentType() == null || conn.getContentType().indexOf("text/html") > -1)
+            && StatusMonitor.instance().isPrimaryDocument(false, url)) {
+          if ((settings.dnsPrefetch() || settings.preconnect()) && !conn.usingProxy()) {
+            content = new LinkScanner(content, conn, settings.dnsPrefetch(), settings.preconnect());
+          }
+          content = new HeadScriptInjector(content, settings.script(), Util.charset(conn));
+          conn.removeContentLength();
         }
-      }
-      byte[] newContent = getBody(conn, bytes, url);
-      if (newContent != null) {
-        bytes = newContent;
       }
     } catch (Throwable t) {
       LogsServer.instance().exception(t);
-    } finally {
-      Util.close(inputStream);
+      Util.close(new BodyStream(content, conn));
+      conn.setContentLength(0);
+      return new ByteArrayInputStream(new byte[0]);
     }
-    conn.setContentLength(bytes.length);
-    return new ByteArrayInputStream(bytes);
+    return new BodyStream(content, conn);
   }
 
-  private static void writeContentToDisk(byte[] content, File dir, String url, String contentType, String contentDisposition) {
-    String filename = Util.randomFileName();
+  /**
+   * Outermost stream handed to WebKit. A connection that's cut off is treated as the end of the body.
+   */
+  private static class BodyStream extends FilterInputStream {
+    private final StreamConnection conn;
 
-    File contentFile = new File(dir, filename + ".content");
+    BodyStream(InputStream in, StreamConnection conn) {
+      super(in);
+      this.conn = conn;
+    }
 
-    File metaFile = new File(dir, filename + ".metadata");
+    @Override
+    public int read() throws IOException {
+      try {
+        return super.read();
+      } catch (EOFException | SSLProtocolException | ConnectionClosedException | SocketException e) {
+        return -1;
+      }
+    }
 
-    contentFile.deleteOnExit();
-    metaFile.deleteOnExit();
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+      try {
+        return super.read(bytes, off, len);
+      } catch (EOFException | SSLProtocolException | ConnectionClosedException | SocketException e) {
+        return -1;
+      }
+    }
 
-    try {
-      Files.write(contentFile.toPath(), content);
-      Files.write(metaFile.toPath(),
-          (new StringBuilder()
-              .append(StringUtils.isEmpty(url) ? "" : url).append("\n")
-              .append(StringUtils.isEmpty(contentType) ? "" : contentType).append("\n")
-              .append(StringUtils.isEmpty(contentDisposition) ? "" : contentDisposition)
-              .toString()).getBytes("utf-8"));
-    } catch (Throwable t) {}
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        Util.close(conn);
+      }
+    }
   }
 
-  private static byte[] getBody(StreamConnection connection, byte[] inflatedContent, String url) {
-    final Settings settings = SettingsManager.settings();
-    try {
-      if (settings.quickRender() && ((StreamConnection) connection).isMedia()) {
-        LogsServer.instance().trace("Media discarded: " + url);
-        StatusMonitor.instance().addDiscarded(url);
-        return new byte[0];
-      } else if (!redirectCodes.contains(connection.getResponseCode())
-          && (connection.getContentType() == null || connection.getContentType().indexOf("text/html") > -1)
-          && StatusMonitor.instance().isPrimaryDocument(false, url)) {
-        String intercepted = null;
-        String charset = Util.charset(connection);
-        String content = new String(inflatedContent, charset);
-        Matcher matcher = head.matcher(content);
-        if (matcher.find()) {
-          intercepted = matcher.replaceFirst(matcher.group(0) + settings.script());
-        } else {
-          matcher = html.matcher(content);
-          if (matcher.find()) {
-            intercepted = matcher.replaceFirst(matcher.group(0) + "<head>" + settings.script() + "</head>");
-          } else {
-            matcher = body.matcher(content);
-            if (matcher.find()) {
-              intercepted = ("<html><head>" + settings.script() + "</head>" + content + "</html>");
-            } else {
-              intercepted = content;
+  /**
+   * Scans the first part of an HTML document as it's read for the hosts it links to, so work on them
+   * can start before WebKit parses the links. Hosts of <code>src</code> and <code>href</code> links are
+   * looked up in DNS. Connections are opened to the origins of scripts, and of links with <code>rel</code>
+   * <code>preconnect</code>, <code>dns-prefetch</code>, <code>preload</code>, <code>modulepreload</code>,
+   * or <code>stylesheet</code>.
+   */
+  private static class LinkScanner extends FilterInputStream {
+    private static final int SCAN_LIMIT = 256 * 1024;
+    private static final int CHUNK = 4096;
+    private static final int OVERLAP = 512;
+    private static final int MAX_HOSTS = 64;
+    private static final Pattern link = Pattern.compile(
+        "\\b(?:src|href)\\s*=\\s*[\"']?(?:https?:)?//([a-z0-9.-]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern tag = Pattern.compile("<(script|link)\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern rel = Pattern.compile("\\brel\\s*=\\s*[\"']?([^\"'>]*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern hint = Pattern.compile(
+        "\\b(?:preconnect|dns-prefetch|preload|modulepreload|stylesheet)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern origin = Pattern.compile(
+        "\\b(?:src|href)\\s*=\\s*[\"']?(?:(https?):)?//([a-z0-9.-]+)(?::(\\d+))?", Pattern.CASE_INSENSITIVE);
+    private final StreamConnection conn;
+    private final boolean dnsPrefetch;
+    private final boolean preconnect;
+    private final String scheme;
+    private final Set<String> seen = new HashSet<String>();
+    private final Set<HttpHost> origins = new HashSet<HttpHost>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(CHUNK);
+    private String tail = "";
+    private int scanned;
+
+    LinkScanner(InputStream in, StreamConnection conn, boolean dnsPrefetch, boolean preconnect) {
+      super(in);
+      this.conn = conn;
+      this.dnsPrefetch = dnsPrefetch;
+      this.preconnect = preconnect;
+      URL url = conn.getURL();
+      scheme = url.getProtocol().toLowerCase(Locale.ENGLISH);
+      seen.add(url.getHost().toLowerCase(Locale.ENGLISH));
+      origins.add(new HttpHost(url.getHost(), url.getPort() == -1 ? url.getDefaultPort() : url.getPort(), scheme));
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        scan(true);
+      } else if (scanned < SCAN_LIMIT) {
+        pending.write(b);
+        scan(false);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+      int read = super.read(bytes, off, len);
+      if (read == -1) {
+        scan(true);
+      } else if (read > 0 && scanned < SCAN_LIMIT) {
+        pending.write(bytes, off, read);
+        scan(false);
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      scan(true);
+      super.close();
+    }
+
+    private void scan(boolean finished) {
+      if (pending.size() == 0 || (!finished && pending.size() < CHUNK)) {
+        return;
+      }
+      try {
+        String text = tail + new String(pending.toByteArray(), StandardCharsets.ISO_8859_1);
+        scanned += pending.size();
+        pending.reset();
+        if (dnsPrefetch) {
+          List<String> hosts = new ArrayList<String>();
+          for (Matcher matcher = link.matcher(text); matcher.find() && seen.size() < MAX_HOSTS;) {
+            //a host at the very end may be cut off, so it's left for the next chunk
+            if ((finished || matcher.end() < text.length()) && seen.add(matcher.group(1).toLowerCase(Locale.ENGLISH))) {
+              hosts.add(matcher.group(1).toLowerCase(Locale.ENGLISH));
             }
           }
+          if (!hosts.isEmpty()) {
+            conn.prefetch(hosts);
+          }
+        }
+        if (preconnect) {
+          List<HttpHost> found = new ArrayList<HttpHost>();
+          //the page's own origin is in the set too
+          for (Matcher matcher = tag.matcher(text); matcher.find() && origins.size() <= Preconnector.MAX_PER_PAGE;) {
+            String element = matcher.group();
+            Matcher relMatcher = rel.matcher(element);
+            Matcher originMatcher = origin.matcher(element);
+            if (("script".equalsIgnoreCase(matcher.group(1))
+                || (relMatcher.find() && hint.matcher(relMatcher.group(1)).find()))
+                && originMatcher.find()) {
+              String originScheme = originMatcher.group(1) == null
+                  ? scheme : originMatcher.group(1).toLowerCase(Locale.ENGLISH);
+              int port = originMatcher.group(3) == null
+                  ? ("https".equals(originScheme) ? 443 : 80) : Integer.parseInt(originMatcher.group(3));
+              HttpHost host = new HttpHost(originMatcher.group(2), port, originScheme);
+              if (origins.add(host)) {
+                found.add(host);
+              }
+            }
+          }
+          if (!found.isEmpty()) {
+            conn.preconnect(found);
+          }
+        }
+        tail = text.substring(Math.max(0, text.length() - OVERLAP));
+      } catch (Throwable t) {
+        LogsServer.instance().exception(t);
+      }
+    }
+  }
+
+  /**
+   * Copies the body to disk as it's read. The rest of the body is copied when the stream is closed early.
+   */
+  private static class DiskWriter extends FilterInputStream {
+    private OutputStream out;
+
+    DiskWriter(InputStream in, File dir, String url, String contentType, String contentDisposition) {
+      super(in);
+      String filename = Util.randomFileName();
+
+      File contentFile = new File(dir, filename + ".content");
+
+      File metaFile = new File(dir, filename + ".metadata");
+
+      contentFile.deleteOnExit();
+      metaFile.deleteOnExit();
+
+      try {
+        Files.write(metaFile.toPath(),
+            (new StringBuilder()
+                .append(StringUtils.isEmpty(url) ? "" : url).append("\n")
+                .append(StringUtils.isEmpty(contentType) ? "" : contentType).append("\n")
+                .append(StringUtils.isEmpty(contentDisposition) ? "" : contentDisposition)
+                .toString()).getBytes("utf-8"));
+        out = new BufferedOutputStream(Files.newOutputStream(contentFile.toPath()), BUFFER_SIZE);
+      } catch (Throwable t) {}
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1 && out != null) {
+        try {
+          out.write(b);
+        } catch (Throwable t) {
+          stopWriting();
+        }
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+      int read = super.read(bytes, off, len);
+      if (read > 0 && out != null) {
+        try {
+          out.write(bytes, off, read);
+        } catch (Throwable t) {
+          stopWriting();
         }
-        return intercepted == null ? null : intercepted.getBytes(charset);
       }
-    } catch (Throwable t) {}
-    return null;
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (out != null) {
+          byte[] buffer = new byte[BUFFER_SIZE];
+          while (read(buffer, 0, buffer.length) != -1);
+        }
+      } catch (Throwable t) {} finally {
+        stopWriting();
+        super.close();
+      }
+    }
+
+    private void stopWriting() {
+      Util.close(out);
+      out = null;
+    }
   }
 }
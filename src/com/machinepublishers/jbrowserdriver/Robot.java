@@ -17,16 +17,7 @@
  */
 package com.machinepublishers.jbrowserdriver;
 
-import java.awt.Transparency;
 import java.awt.event.KeyEvent;
-import java.awt.image.BufferedImage;
-import java.awt.image.ColorModel;
-import java.awt.image.ComponentColorModel;
-import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferByte;
-import java.awt.image.Raster;
-import java.awt.image.WritableRaster;
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
@@ -34,19 +25,19 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
-import javax.imageio.ImageIO;
-
 import org.openqa.selenium.Keys;
 
 import com.machinepublishers.jbrowserdriver.AppThread.Sync;
 import com.sun.glass.ui.Application;
 import com.sun.glass.ui.Pixels;
 
-import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.SnapshotParameters;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
+import javafx.scene.web.WebView;
 import javafx.stage.Stage;
 
 class Robot {
@@ -240,6 +231,7 @@ class Robot {
   private static final int CARRIAGE_RETURN = "\r".codePointAt(0);
   private static final int ENTER = Keys.ENTER.toString().codePointAt(0);
   private final AtomicReference<com.sun.glass.ui.Robot> robot = new AtomicReference<com.sun.glass.ui.Robot>();
+  private final AtomicReference<WritableImage> snapshot = new AtomicReference<WritableImage>();
   private final AtomicLong latestThread = new AtomicLong();
   private final AtomicLong curThread = new AtomicLong();
   private final Context context;
@@ -534,69 +526,98 @@ class Robot {
   }
 
   byte[] screenshot() {
+    Screenshot screenshot = screenshot(ImageFormat.PNG);
+    return screenshot == null ? null : screenshot.getBytes();
+  }
+
+  Screenshot screenshot(ImageFormat format) {
+    return screenshot(format, null);
+  }
+
+  /**
+   * Captures only the given region of the view, so the cost is proportional to the region's area.
+   *
+   * @param region
+   *          x, y, width, and height in view coordinates, clipped to the view; or null for the whole view
+   */
+  Screenshot screenshot(ImageFormat format, int[] region) {
+    final int[] size = new int[2];
+    byte[] pixels;
     lock();
     try {
-      return AppThread.exec(context.item().statusCode, () -> {
-        BufferedImage image = null;
+      pixels = AppThread.exec(context.item().statusCode, () -> capture(size, region));
+    } finally {
+      unlock();
+    }
+    return pixels == null ? null : ScreenshotEncoder.encode(size[0], size[1], pixels, format);
+  }
 
-        Throwable attempt1 = null;
-        try {
-          image = SwingFXUtils.fromFXImage(
-              context.item().view.get().snapshot(
-                  new SnapshotParameters(),
-                  new WritableImage(
-                      (int) Math.rint((Double) context.item().view.get().getWidth()),
-                      (int) Math.rint((Double) context.item().view.get().getHeight()))),
-              null);
-        } catch (Throwable t) {
-          attempt1 = t;
-        }
+  /**
+   * Copies the pixels of the view into a pooled buffer. Runs on the FX thread, so it does nothing else.
+   *
+   * @param size
+   *          receives the width and height
+   * @return BGRA pixels, or null on failure
+   */
+  private byte[] capture(int[] size, int[] region) {
+    final WebView view = context.item().view.get();
+    final int viewWidth = (int) Math.rint((Double) view.getWidth());
+    final int viewHeight = (int) Math.rint((Double) view.getHeight());
+    final int x = region == null ? 0 : Math.max(0, region[0]);
+    final int y = region == null ? 0 : Math.max(0, region[1]);
+    final int width = region == null ? viewWidth : Math.min(viewWidth, region[0] + region[2]) - x;
+    final int height = region == null ? viewHeight : Math.min(viewHeight, region[1] + region[3]) - y;
+    if (width <= 0 || height <= 0) {
+      LogsServer.instance().warn("Screenshot region is outside of the window.");
+      return null;
+    }
 
-        Throwable attempt2 = null;
-        if (image == null && SettingsManager.isMonocle()) {
-          try {
-            final Stage stage = context.item().stage.get();
-            final Scene scene = stage.getScene();
-            final Pixels pixels = robot.get().getScreenCapture(
-                (int) Math.rint(stage.getX() + scene.getX()),
-                (int) Math.rint(stage.getY() + scene.getY()),
-                (int) Math.rint(scene.getWidth()),
-                (int) Math.rint(scene.getHeight()),
-                false);
-            final ByteBuffer pixelBuffer = pixels.asByteBuffer();
-            final byte[] bytes = new byte[pixelBuffer.remaining()];
-            pixelBuffer.get(bytes);
-            final int bytesPerComponent = pixels.getBytesPerComponent();
-            final int width = pixels.getWidth();
-            final int height = pixels.getHeight();
-            final DataBuffer buffer = new DataBufferByte(bytes, bytes.length);
-            final WritableRaster raster = Raster.createInterleavedRaster(buffer, width, height,
-                bytesPerComponent * width, bytesPerComponent, new int[] { 2, 1, 0 }, null);
-            final ColorModel colorModel = new ComponentColorModel(ColorModel.getRGBdefault().getColorSpace(),
-                false, true, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
-            image = new BufferedImage(colorModel, raster, true, null);
-          } catch (Throwable t) {
-            attempt2 = t;
-          }
-        }
-        if (image != null) {
-          ByteArrayOutputStream out = null;
-          try {
-            out = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", out);
-            return out.toByteArray();
-          } catch (Throwable t) {
-            LogsServer.instance().exception(t);
-          } finally {
-            Util.close(out);
-          }
+    Throwable attempt1 = null;
+    try {
+      WritableImage image = snapshot.get();
+      if (image == null || (int) image.getWidth() != width || (int) image.getHeight() != height) {
+        image = new WritableImage(width, height);
+        if (region == null) {
+          snapshot.set(image);
         }
-        LogsServer.instance().exception(attempt1);
-        LogsServer.instance().exception(attempt2);
-        return null;
-      });
-    } finally {
-      unlock();
+      }
+      final SnapshotParameters params = new SnapshotParameters();
+      if (region != null) {
+        params.setViewport(new Rectangle2D(x, y, width, height));
+      }
+      image = view.snapshot(params, image);
+      final byte[] pixels = ScreenshotEncoder.acquire(width * height * 4);
+      image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getByteBgraInstance(), pixels, 0, width * 4);
+      size[0] = width;
+      size[1] = height;
+      return pixels;
+    } catch (Throwable t) {
+      attempt1 = t;
+    }
+
+    Throwable attempt2 = null;
+    if (SettingsManager.isMonocle()) {
+      try {
+        final Stage stage = context.item().stage.get();
+        final Scene scene = stage.getScene();
+        final Pixels captured = robot.get().getScreenCapture(
+            (int) Math.rint(stage.getX() + scene.getX()) + x,
+            (int) Math.rint(stage.getY() + scene.getY()) + y,
+            region == null ? (int) Math.rint(scene.getWidth()) : width,
+            region == null ? (int) Math.rint(scene.getHeight()) : height,
+            false);
+        final ByteBuffer pixelBuffer = captured.asByteBuffer();
+        final byte[] pixels = ScreenshotEncoder.acquire(pixelBuffer.remaining());
+        pixelBuffer.get(pixels);
+        size[0] = captured.getWidth();
+        size[1] = captured.getHeight();
+        return pixels;
+      } catch (Throwable t) {
+        attempt2 = t;
+      }
     }
+    LogsServer.instance().exception(attempt1);
+    LogsServer.instance().exception(attempt2);
+    return null;
   }
 }
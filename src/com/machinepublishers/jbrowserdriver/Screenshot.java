@@ -0,0 +1,70 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Image captured by {@link JBrowserDriver#getScreenshot(ImageFormat)}.
+ */
+public class Screenshot implements Serializable {
+  private final int width;
+  private final int height;
+  private final ImageFormat format;
+  private final byte[] data;
+
+  Screenshot(int width, int height, ImageFormat format, byte[] data) {
+    this.width = width;
+    this.height = height;
+    this.format = format;
+    this.data = data;
+  }
+
+  /**
+   * @return width in pixels
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * @return height in pixels
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  public ImageFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * @return the encoded image, or for raw formats the pixels with a row stride of <code>4 * width</code>
+   */
+  public byte[] getBytes() {
+    return data;
+  }
+
+  /**
+   * @return read-only view of {@link #getBytes()}
+   */
+  public ByteBuffer asByteBuffer() {
+    return ByteBuffer.wrap(data).asReadOnlyBuffer();
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Encodes captured pixels on the thread which requested the screenshot, after the FX thread and the {@link Robot}
+ * are released, so they're only held while pixels are copied out of the scene.
+ * <p>
+ * Pixel buffers are pooled, since consecutive screenshots are almost always the same size.
+ */
+class ScreenshotEncoder {
+  private static final int POOLED_BUFFERS = 4;
+  private static final float JPEG_QUALITY = .9f;
+  private static final byte[] PNG_SIGNATURE = new byte[] { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+  private static final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+
+  /**
+   * @return a buffer of exactly <code>length</code> bytes, pooled if possible
+   */
+  static byte[] acquire(int length) {
+    for (Iterator<byte[]> it = buffers.iterator(); it.hasNext();) {
+      byte[] buffer = it.next();
+      if (buffer.length == length && buffers.remove(buffer)) {
+        return buffer;
+      }
+    }
+    return new byte[length];
+  }
+
+  static void release(byte[] buffer) {
+    if (buffers.size() < POOLED_BUFFERS) {
+      buffers.offer(buffer);
+    } else {
+      //screen size changed, so make room for buffers of the new size
+      buffers.poll();
+      buffers.offer(buffer);
+    }
+  }
+
+  /**
+   * Encodes the pixels on the calling thread, which is never the FX thread.
+   * For raw formats the pixel buffer becomes the result; otherwise it's returned to the pool.
+   *
+   * @param bgra
+   *          pixels from {@link #acquire(int)}, four bytes per pixel in blue, green, red, alpha order
+   */
+  static Screenshot encode(final int width, final int height, final byte[] bgra, final ImageFormat format) {
+    if (format == ImageFormat.BGRA) {
+      return new Screenshot(width, height, format, bgra);
+    }
+    if (format == ImageFormat.RGBA) {
+      for (int i = 0; i < bgra.length; i += 4) {
+        byte b = bgra[i];
+        bgra[i] = bgra[i + 2];
+        bgra[i + 2] = b;
+      }
+      return new Screenshot(width, height, format, bgra);
+    }
+    try {
+      byte[] encoded = format == ImageFormat.JPEG
+          ? jpeg(width, height, bgra)
+          : png(width, height, bgra, format == ImageFormat.PNG_FAST ? Deflater.BEST_SPEED : Deflater.DEFAULT_COMPRESSION);
+      return new Screenshot(width, height, format, encoded);
+    } catch (Throwable t) {
+      LogsServer.instance().exception(t);
+      return null;
+    } finally {
+      release(bgra);
+    }
+  }
+
+  /**
+   * Opaque 8-bit RGB PNG. Every row uses the Sub filter, which turns the flat areas common in web pages
+   * into runs of zeros that deflate well, without the cost of choosing a filter per row.
+   */
+  static byte[] png(int width, int height, byte[] bgra, int level) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bgra.length / 8);
+    Deflater deflater = new Deflater(level);
+    try (DeflaterOutputStream deflate = new DeflaterOutputStream(compressed, deflater, 64 * 1024)) {
+      byte[] row = new byte[1 + 3 * width];
+      row[0] = 1;
+      for (int y = 0, in = 0; y < height; y++) {
+        int prevR = 0;
+        int prevG = 0;
+        int prevB = 0;
+        for (int x = 0, out = 1; x < width; x++, in += 4) {
+          int b = bgra[in];
+          int g = bgra[in + 1];
+          int r = bgra[in + 2];
+          row[out++] = (byte) (r - prevR);
+          row[out++] = (byte) (g - prevG);
+          row[out++] = (byte) (b - prevB);
+          prevR = r;
+          prevG = g;
+          prevB = b;
+        }
+        deflate.write(row);
+      }
+    } finally {
+      deflater.end();
+    }
+    ByteArrayOutputStream png = new ByteArrayOutputStream(compressed.size() + 64);
+    DataOutputStream out = new DataOutputStream(png);
+    out.write(PNG_SIGNATURE);
+    ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+    DataOutputStream headerOut = new DataOutputStream(header);
+    headerOut.writeInt(width);
+    headerOut.writeInt(height);
+    headerOut.writeByte(8);
+    headerOut.writeByte(2);
+    headerOut.writeByte(0);
+    headerOut.writeByte(0);
+    headerOut.writeByte(0);
+    chunk(out, "IHDR", header.toByteArray(), header.size());
+    byte[] data = compressed.toByteArray();
+    chunk(out, "IDAT", data, data.length);
+    chunk(out, "IEND", new byte[0], 0);
+    return png.toByteArray();
+  }
+
+  private static void chunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+    byte[] typeBytes = type.getBytes("US-ASCII");
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+    out.writeInt(length);
+    out.write(typeBytes);
+    out.write(data, 0, length);
+    out.writeInt((int) crc.getValue());
+  }
+
+  static byte[] jpeg(int width, int height, byte[] bgra) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    byte[] bgr = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    for (int in = 0, out = 0; out < bgr.length; in += 4, out += 3) {
+      bgr[out] = bgra[in];
+      bgr[out + 1] = bgra[in + 1];
+      bgr[out + 2] = bgra[in + 2];
+    }
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream(bgr.length / 10);
+    try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(jpeg)) {
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(JPEG_QUALITY);
+      writer.setOutput(out);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    return jpeg.toByteArray();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import netscape.javascript.JSObject;
+
+/**
+ * JavaScript functions compiled for the documents of a page, so scripts which are run repeatedly
+ * are parsed once per document rather than on every call.
+ * <p>
+ * A function is compiled in the global scope of the document it's first used with, so functions are
+ * cached per document. Both the number of documents and the number of functions per document are bounded,
+ * evicting the least recently used. The cache is cleared when the page's top-level document changes.
+ */
+class ScriptCache {
+  private static final int MAX_DOCUMENTS = 16;
+  private static final int MAX_FUNCTIONS = 256;
+
+  private final Map<Document, Map<String, JSObject>> documents = new LinkedHashMap<Document, Map<String, JSObject>>(
+      MAX_DOCUMENTS, .75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Document, Map<String, JSObject>> eldest) {
+      return size() > MAX_DOCUMENTS;
+    }
+  };
+
+  /**
+   * Calls a function with a node as <code>this</code>, compiling the function if it's not cached for the node's document.
+   *
+   * @param node
+   * @param function
+   *          source of a function expression, e.g. <code>(function(a, b){...})</code>
+   * @param args
+   * @return the function's return value
+   */
+  Object call(JSObject node, String function, Object... args) {
+    JSObject compiled = function(node, function);
+    Object[] callArgs = new Object[args == null ? 1 : args.length + 1];
+    callArgs[0] = node;
+    if (args != null) {
+      System.arraycopy(args, 0, callArgs, 1, args.length);
+    }
+    return compiled.call("call", callArgs);
+  }
+
+  private JSObject function(JSObject node, String function) {
+    Document doc = node instanceof Document ? (Document) node
+        : node instanceof Node ? ((Node) node).getOwnerDocument() : null;
+    if (doc == null) {
+      return (JSObject) node.eval(function);
+    }
+    synchronized (documents) {
+      Map<String, JSObject> functions = documents.get(doc);
+      if (functions == null) {
+        functions = new LinkedHashMap<String, JSObject>(16, .75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, JSObject> eldest) {
+            return size() > MAX_FUNCTIONS;
+          }
+        };
+        documents.put(doc, functions);
+      }
+      JSObject compiled = functions.get(function);
+      if (compiled == null) {
+        compiled = (JSObject) node.eval(function);
+        functions.put(function, compiled);
+      }
+      return compiled;
+    }
+  }
+
+  void clear() {
+    synchronized (documents) {
+      documents.clear();
+    }
+  }
+}
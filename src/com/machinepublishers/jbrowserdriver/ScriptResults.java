@@ -0,0 +1,204 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import netscape.javascript.JSObject;
+
+/**
+ * Converts script results in one pass. {@link #ENCODE} serializes a value inside the page
+ * to a tagged string plus an array of the DOM nodes it references, and {@link #decode(JSObject, Function)}
+ * turns that into the same lists, maps, and values which {@link ElementServer} otherwise builds
+ * by reading the value one property at a time.
+ * <p>
+ * Encoding:
+ * <ul>
+ * <li><code>n</code> null or undefined</li>
+ * <li><code>t</code> true, <code>f</code> false</li>
+ * <li><code>i</code>integer<code>;</code> a number which fits in an int</li>
+ * <li><code>d</code>number<code>;</code> any other number</li>
+ * <li><code>s</code>length<code>:</code>chars a string, or a function's source</li>
+ * <li><code>e</code>index<code>;</code> a DOM node, by its index in the node array</li>
+ * <li><code>l</code>count<code>;</code> a list, followed by its items</li>
+ * <li><code>m</code>count<code>;</code> a map, followed by its keys and values, alternating</li>
+ * </ul>
+ * Cyclic or very deeply nested values aren't encoded, and their callers fall back to reading them property by property.
+ */
+class ScriptResults {
+  private static final int MAX_DEPTH = 128;
+  static final String ENCODE;
+
+  static {
+    StringBuilder builder = new StringBuilder();
+    builder.append("(function(value){");
+    builder.append("var out = [];");
+    builder.append("var nodes = [];");
+    builder.append("var stack = [];");
+    builder.append("var ok = true;");
+    builder.append("var str = function(s) {");
+    builder.append("  out.push('s', s.length, ':', s);");
+    builder.append("};");
+    builder.append("var encode = function(v) {");
+    builder.append("  if (!ok) {");
+    builder.append("    return;");
+    builder.append("  }");
+    builder.append("  if (v === undefined || v === null || v === 'undefined') {");
+    builder.append("    out.push('n');");
+    builder.append("    return;");
+    builder.append("  }");
+    builder.append("  var type = typeof v;");
+    builder.append("  if (type == 'boolean') {");
+    builder.append("    out.push(v ? 't' : 'f');");
+    builder.append("  } else if (type == 'number') {");
+    builder.append("    out.push(v === (v | 0) ? 'i' : 'd', v, ';');");
+    builder.append("  } else if (type == 'string') {");
+    builder.append("    str(v);");
+    builder.append("  } else if (type != 'object' && type != 'function') {");
+    builder.append("    str(String(v));");
+    builder.append("  } else if (typeof v.nodeType == 'number' && typeof v.nodeName == 'string') {");
+    builder.append("    out.push('e', nodes.length, ';');");
+    builder.append("    nodes.push(v);");
+    builder.append("  } else if (stack.length >= ").append(MAX_DEPTH).append(" || stack.indexOf(v) != -1) {");
+    builder.append("    ok = false;");
+    builder.append("  } else {");
+    builder.append("    stack.push(v);");
+    builder.append("    if (v[0] !== undefined) {");
+    builder.append("      var length = 0;");
+    builder.append("      while (v[length] !== undefined) {");
+    builder.append("        ++length;");
+    builder.append("      }");
+    builder.append("      out.push('l', length, ';');");
+    builder.append("      for (var i = 0; i < length; i++) {");
+    builder.append("        encode(v[i]);");
+    builder.append("      }");
+    builder.append("    } else if (type == 'function') {");
+    builder.append("      str(String(v));");
+    builder.append("    } else if (Array.isArray(v)) {");
+    builder.append("      out.push('l0;');");
+    builder.append("    } else {");
+    builder.append("      var keys = [];");
+    builder.append("      for (var key in v) {");
+    builder.append("        keys.push(key);");
+    builder.append("      }");
+    builder.append("      out.push('m', keys.length, ';');");
+    builder.append("      for (var i = 0; i < keys.length; i++) {");
+    builder.append("        str(keys[i]);");
+    builder.append("        encode(v[keys[i]]);");
+    builder.append("      }");
+    builder.append("    }");
+    builder.append("    stack.pop();");
+    builder.append("  }");
+    builder.append("};");
+    builder.append("encode(value);");
+    builder.append("return ok ? [out.join(''), nodes] : null;");
+    builder.append("})");
+    ENCODE = builder.toString();
+  }
+
+  private final String encoded;
+  private final Object[] nodes;
+  private int pos;
+
+  private ScriptResults(String encoded, Object[] nodes) {
+    this.encoded = encoded;
+    this.nodes = nodes;
+  }
+
+  /**
+   * @param result
+   *          value returned by {@link #ENCODE}
+   * @param nodeConverter
+   *          converts the DOM nodes referenced by the value
+   * @return the decoded value, or null if the value couldn't be encoded
+   */
+  static Decoded decode(JSObject result, Function<Object, Object> nodeConverter) {
+    if (result == null) {
+      return null;
+    }
+    Object encoded = result.getSlot(0);
+    if (!(encoded instanceof String)) {
+      return null;
+    }
+    JSObject nodeArray = (JSObject) result.getSlot(1);
+    Object[] nodes = new Object[((Number) nodeArray.getMember("length")).intValue()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = nodeConverter.apply(nodeArray.getSlot(i));
+    }
+    return new Decoded(new ScriptResults((String) encoded, nodes).next());
+  }
+
+  static class Decoded {
+    final Object value;
+
+    private Decoded(Object value) {
+      this.value = value;
+    }
+  }
+
+  private Object next() {
+    char tag = encoded.charAt(pos++);
+    switch (tag) {
+      case 'n':
+        return null;
+      case 't':
+        return Boolean.TRUE;
+      case 'f':
+        return Boolean.FALSE;
+      case 'i':
+        return Long.parseLong(until(';'));
+      case 'd':
+        return Double.parseDouble(until(';'));
+      case 's':
+        int length = Integer.parseInt(until(':'));
+        String str = encoded.substring(pos, pos + length);
+        pos += length;
+        return str;
+      case 'e':
+        return nodes[Integer.parseInt(until(';'))];
+      case 'l':
+        int items = Integer.parseInt(until(';'));
+        List<Object> list = new ArrayList<Object>(items);
+        for (int i = 0; i < items; i++) {
+          list.add(next());
+        }
+        return list;
+      case 'm':
+        int entries = Integer.parseInt(until(';'));
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < entries; i++) {
+          String key = (String) next();
+          map.put(key, next());
+        }
+        return map;
+      default:
+        throw new IllegalStateException("Unexpected tag '" + tag + "' in script result at " + (pos - 1));
+    }
+  }
+
+  private String until(char delimiter) {
+    int end = encoded.indexOf(delimiter, pos);
+    String str = encoded.substring(pos, end);
+    pos = end + 1;
+    return str;
+  }
+}
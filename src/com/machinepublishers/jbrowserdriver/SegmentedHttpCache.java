@@ -0,0 +1,545 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.apache.http.Header;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.cache.HttpCacheEntry;
+import org.apache.http.client.cache.HttpCacheStorage;
+import org.apache.http.client.cache.HttpCacheUpdateCallback;
+import org.apache.http.client.cache.HttpCacheUpdateException;
+import org.apache.http.client.cache.Resource;
+import org.apache.http.impl.client.cache.HeapResource;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicStatusLine;
+
+/**
+ * Cache storage which appends entries to memory-mapped segment files
+ * and keeps an in-memory index from cache key to record location.
+ * <p>
+ * Record layout: magic, payload length, CRC32 of payload, then the payload which is
+ * a type byte, the key, and (for entries) the status line, headers, variant map and body.
+ * Bodies are served as slices of the mapped segment, so a cache hit does no copying or
+ * deserialization of the body.
+ * <p>
+ * The index lives in memory, so one instance owns a cache directory at a time. It holds an exclusive
+ * lock on {@link SegmentedHttpCache#LOCK_FILE} until closed, and the constructor fails if another instance,
+ * in this JVM or another, holds it.
+ */
+class SegmentedHttpCache implements HttpCacheStorage, Closeable {
+  private static final int MAGIC = 0x4A424443;
+  private static final int RECORD_HEADER = 12;
+  private static final byte TYPE_ENTRY = 1;
+  private static final byte TYPE_REMOVED = 2;
+  private static final long SEGMENT_SIZE = 64 * 1024 * 1024;
+  private static final double COMPACT_RATIO = .5d;
+  private static final long COMPACT_INTERVAL = 30 * 1000;
+  static final String LOCK_FILE = "segments.lock";
+  private static final Pattern segmentName = Pattern.compile("segment-([0-9]+)\\.dat");
+
+  private final File cacheDir;
+  private final Map<String, Location> index = new ConcurrentHashMap<String, Location>();
+  private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<Integer, Segment>();
+  private final Object writeLock = new Object();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final Thread compactor;
+  private final RandomAccessFile lockFile;
+  private final FileLock dirLock;
+  private Segment active;
+
+  /**
+   * @throws IOException
+   *           if the directory is in use by another instance or its segments can't be opened
+   */
+  SegmentedHttpCache(File cacheDir) throws IOException {
+    this.cacheDir = cacheDir;
+    lockFile = new RandomAccessFile(new File(cacheDir, LOCK_FILE), "rw");
+    FileLock dirLockTmp = null;
+    try {
+      dirLockTmp = lockFile.getChannel().tryLock();
+    } catch (OverlappingFileLockException e) {
+      //held by another instance in this JVM
+    } catch (IOException e) {
+      Util.close(lockFile);
+      throw e;
+    }
+    if (dirLockTmp == null) {
+      Util.close(lockFile);
+      throw new IOException("Cache directory is in use by another browser: " + cacheDir.getAbsolutePath());
+    }
+    dirLock = dirLockTmp;
+    try {
+      load();
+      synchronized (writeLock) {
+        active = segments.isEmpty() ? newSegment(1, SEGMENT_SIZE) : segments.lastEntry().getValue();
+      }
+    } catch (IOException | RuntimeException e) {
+      for (Segment segment : segments.values()) {
+        segment.close();
+      }
+      release();
+      throw e;
+    }
+    compactor = new Thread(() -> {
+      while (!closed.get()) {
+        try {
+          Thread.sleep(COMPACT_INTERVAL);
+        } catch (InterruptedException e) {
+          return;
+        }
+        try {
+          compact();
+        } catch (Throwable t) {
+          LogsServer.instance().exception(t);
+        }
+      }
+    });
+    compactor.setName("jBrowserDriver cache compaction");
+    compactor.setDaemon(true);
+    compactor.start();
+  }
+
+  private static class Location {
+    private final Segment segment;
+    private final int offset;
+    private final int length;
+
+    Location(Segment segment, int offset, int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static class Segment {
+    private final int id;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer map;
+    private final AtomicLong dead = new AtomicLong();
+    private int end;
+
+    Segment(int id, File file, long size) throws IOException {
+      this.id = id;
+      this.file = file;
+      this.raf = new RandomAccessFile(file, "rw");
+      this.map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, raf.length()));
+    }
+
+    ByteBuffer view(int offset, int length) {
+      ByteBuffer view = map.duplicate();
+      view.limit(offset + length);
+      view.position(offset);
+      return view.slice();
+    }
+
+    void close() {
+      try {
+        map.force();
+      } catch (Throwable t) {}
+      Util.close(raf);
+    }
+  }
+
+  /**
+   * Serves the body of an entry directly from a mapped segment.
+   */
+  private static class MappedResource implements Resource {
+    private static final long serialVersionUID = 1L;
+    private final transient ByteBuffer body;
+
+    MappedResource(ByteBuffer body) {
+      this.body = body;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream getInputStream() {
+      final ByteBuffer buffer = body.duplicate();
+      return new InputStream() {
+        @Override
+        public int read() {
+          return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+          if (!buffer.hasRemaining()) {
+            return -1;
+          }
+          len = Math.min(len, buffer.remaining());
+          buffer.get(bytes, off, len);
+          return len;
+        }
+
+        @Override
+        public int available() {
+          return buffer.remaining();
+        }
+      };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long length() {
+      return body.capacity();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispose() {}
+
+    private Object writeReplace() throws ObjectStreamException {
+      byte[] bytes = new byte[body.capacity()];
+      body.duplicate().get(bytes);
+      return new HeapResource(bytes);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public HttpCacheEntry getEntry(String key) throws IOException {
+    Location location = index.get(key);
+    if (location == null || closed.get()) {
+      return null;
+    }
+    try {
+      return readEntry(location.segment.view(location.offset, location.length));
+    } catch (Throwable t) {
+      LogsServer.instance().exception(t);
+      return null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putEntry(String key, HttpCacheEntry entry) throws IOException {
+    if (entry == null) {
+      removeEntry(key);
+      return;
+    }
+    Resource resource = entry.getResource();
+    byte[] head = writeHead(TYPE_ENTRY, key, entry);
+    long bodyLength = resource == null ? 0 : resource.length();
+    if (head.length + bodyLength + RECORD_HEADER > Integer.MAX_VALUE) {
+      return;
+    }
+    InputStream body = resource == null ? null : resource.getInputStream();
+    try {
+      append(key, head, body, (int) bodyLength);
+    } finally {
+      Util.close(body);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void removeEntry(String key) throws IOException {
+    if (index.containsKey(key)) {
+      append(key, writeHead(TYPE_REMOVED, key, null), null, 0);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateEntry(String key, HttpCacheUpdateCallback callback) throws IOException, HttpCacheUpdateException {
+    synchronized (writeLock) {
+      putEntry(key, callback.update(getEntry(key)));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      compactor.interrupt();
+      synchronized (writeLock) {
+        for (Segment segment : segments.values()) {
+          segment.close();
+        }
+        index.clear();
+        release();
+      }
+    }
+  }
+
+  private void release() {
+    try {
+      dirLock.release();
+    } catch (Throwable t) {}
+    Util.close(lockFile);
+  }
+
+  private void append(String key, byte[] head, InputStream body, int bodyLength) throws IOException {
+    final int length = RECORD_HEADER + head.length + bodyLength;
+    synchronized (writeLock) {
+      if (closed.get()) {
+        return;
+      }
+      if (active.end + length > active.map.capacity()) {
+        active = newSegment(active.id + 1, Math.max(SEGMENT_SIZE, length));
+      }
+      ByteBuffer record = active.view(active.end, length);
+      record.position(RECORD_HEADER);
+      record.put(head);
+      if (body != null) {
+        byte[] chunk = new byte[8192];
+        for (int read; record.hasRemaining() && (read = body.read(chunk, 0, Math.min(chunk.length, record.remaining()))) != -1;) {
+          record.put(chunk, 0, read);
+        }
+        if (record.hasRemaining()) {
+          throw new IOException("Cache entry body ended before its declared length.");
+        }
+      }
+      CRC32 crc = new CRC32();
+      record.position(RECORD_HEADER);
+      crc.update(record);
+      record.putInt(0, MAGIC);
+      record.putInt(4, length - RECORD_HEADER);
+      record.putInt(8, (int) crc.getValue());
+      Location location = new Location(active, active.end, length);
+      active.end += length;
+      Location prev = head[0] == TYPE_REMOVED ? index.remove(key) : index.put(key, location);
+      if (prev != null) {
+        prev.segment.dead.addAndGet(prev.length);
+      }
+      if (head[0] == TYPE_REMOVED) {
+        active.dead.addAndGet(length);
+      }
+    }
+  }
+
+  private Segment newSegment(int id, long size) throws IOException {
+    Segment segment = new Segment(id, new File(cacheDir, "segment-" + id + ".dat"), size);
+    segments.put(id, segment);
+    return segment;
+  }
+
+  private void load() throws IOException {
+    File[] files = cacheDir.listFiles();
+    Map<Integer, File> sorted = new TreeMap<Integer, File>();
+    for (int i = 0; files != null && i < files.length; i++) {
+      Matcher matcher = segmentName.matcher(files[i].getName());
+      if (matcher.matches()) {
+        sorted.put(Integer.parseInt(matcher.group(1)), files[i]);
+      }
+    }
+    for (Map.Entry<Integer, File> file : sorted.entrySet()) {
+      Segment segment = new Segment(file.getKey(), file.getValue(), 0);
+      segments.put(segment.id, segment);
+      ByteBuffer buffer = segment.map.duplicate();
+      while (buffer.remaining() >= RECORD_HEADER) {
+        int offset = buffer.position();
+        int length = buffer.getInt(offset + 4);
+        if (buffer.getInt(offset) != MAGIC || length <= 0 || length > buffer.remaining() - RECORD_HEADER) {
+          break;
+        }
+        ByteBuffer payload = segment.view(offset + RECORD_HEADER, length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(offset + 8)) {
+          break;
+        }
+        byte type = payload.get();
+        String key = readString(payload);
+        Location prev;
+        if (type == TYPE_ENTRY) {
+          prev = index.put(key, new Location(segment, offset, length + RECORD_HEADER));
+        } else {
+          prev = index.remove(key);
+          segment.dead.addAndGet(length + RECORD_HEADER);
+        }
+        if (prev != null) {
+          prev.segment.dead.addAndGet(prev.length);
+        }
+        buffer.position(offset + RECORD_HEADER + length);
+      }
+      segment.end = buffer.position();
+    }
+  }
+
+  /**
+   * Rewrites the live records of mostly-dead segments into the active segment and deletes the old files.
+   */
+  void compact() throws IOException {
+    for (Segment segment : new ArrayList<Segment>(segments.values())) {
+      if (closed.get()) {
+        return;
+      }
+      synchronized (writeLock) {
+        if (segment == active || segment.end == 0 || segment.dead.get() < segment.end * COMPACT_RATIO) {
+          continue;
+        }
+        boolean olderSegments = segments.firstKey() < segment.id;
+        ByteBuffer buffer = segment.view(0, segment.end);
+        while (buffer.remaining() >= RECORD_HEADER) {
+          int offset = buffer.position();
+          int length = buffer.getInt(offset + 4) + RECORD_HEADER;
+          ByteBuffer record = segment.view(offset, length);
+          ByteBuffer payload = segment.view(offset + RECORD_HEADER, length - RECORD_HEADER);
+          byte type = payload.get();
+          String key = readString(payload);
+          Location location = index.get(key);
+          if ((type == TYPE_ENTRY && location != null && location.segment == segment && location.offset == offset)
+              || (type == TYPE_REMOVED && location == null && olderSegments)) {
+            //tombstones must outlive any older segment that may still hold the removed entry
+            if (active.end + length > active.map.capacity()) {
+              active = newSegment(active.id + 1, Math.max(SEGMENT_SIZE, length));
+            }
+            active.view(active.end, length).put(record);
+            if (type == TYPE_ENTRY) {
+              index.put(key, new Location(active, active.end, length));
+            } else {
+              active.dead.addAndGet(length);
+            }
+            active.end += length;
+          }
+          buffer.position(offset + length);
+        }
+        segments.remove(segment.id);
+        segment.close();
+        if (!segment.file.delete()) {
+          segment.file.deleteOnExit();
+        }
+      }
+    }
+  }
+
+  private static byte[] writeHead(byte type, String key, HttpCacheEntry entry) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(type);
+    writeString(out, key);
+    if (entry != null) {
+      out.writeLong(entry.getRequestDate().getTime());
+      out.writeLong(entry.getResponseDate().getTime());
+      ProtocolVersion version = entry.getProtocolVersion();
+      writeString(out, version.getProtocol());
+      out.writeInt(version.getMajor());
+      out.writeInt(version.getMinor());
+      out.writeInt(entry.getStatusCode());
+      writeString(out, entry.getReasonPhrase());
+      writeString(out, entry.getRequestMethod());
+      Header[] headers = entry.getAllHeaders();
+      out.writeInt(headers.length);
+      for (Header header : headers) {
+        writeString(out, header.getName());
+        writeString(out, header.getValue());
+      }
+      Map<String, String> variants = entry.getVariantMap();
+      out.writeInt(variants.size());
+      for (Map.Entry<String, String> variant : variants.entrySet()) {
+        writeString(out, variant.getKey());
+        writeString(out, variant.getValue());
+      }
+      out.writeInt(entry.getResource() == null ? -1 : (int) entry.getResource().length());
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static HttpCacheEntry readEntry(ByteBuffer record) {
+    record.position(RECORD_HEADER);
+    record.get();
+    readString(record);
+    Date requestDate = new Date(record.getLong());
+    Date responseDate = new Date(record.getLong());
+    ProtocolVersion version = new ProtocolVersion(readString(record), record.getInt(), record.getInt());
+    BasicStatusLine statusLine = new BasicStatusLine(version, record.getInt(), readString(record));
+    String requestMethod = readString(record);
+    Header[] headers = new Header[record.getInt()];
+    for (int i = 0; i < headers.length; i++) {
+      headers[i] = new BasicHeader(readString(record), readString(record));
+    }
+    int variantCount = record.getInt();
+    Map<String, String> variants = new LinkedHashMap<String, String>();
+    for (int i = 0; i < variantCount; i++) {
+      variants.put(readString(record), readString(record));
+    }
+    int bodyLength = record.getInt();
+    Resource resource = null;
+    if (bodyLength > -1) {
+      record.limit(record.position() + bodyLength);
+      resource = new MappedResource(record.slice());
+    }
+    return new HttpCacheEntry(requestDate, responseDate, statusLine, headers, resource, variants, requestMethod);
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    if (str == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
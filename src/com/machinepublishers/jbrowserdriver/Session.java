@@ -0,0 +1,367 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.IOException;
+import java.net.CookieHandler;
+import java.net.URI;
+import java.rmi.RemoteException;
+import java.security.AccessControlContext;
+import java.security.AccessController;
+import java.security.DomainCombiner;
+import java.security.PrivilegedAction;
+import java.security.ProtectionDomain;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javafx.application.Platform;
+import javafx.scene.web.WebEngine;
+
+/**
+ * State belonging to one browser: its settings, status monitor, logs, cookies, and HTTP client.
+ * Several browsers can run in one JVM and share the JavaFX toolkit, each with its own session.
+ * <p>
+ * Code which isn't handed a session finds it with {@link Session#current()}, which is bound per thread:
+ * by the driver API (see {@link SocketLock}), by {@link AppThread} for actions run on the FX thread,
+ * and by {@link HttpListener} for WebKit load events. WebKit loads each resource under the access control
+ * context its page was created with, so pages are created in their session's context (see {@link Session#inPage})
+ * and {@link StreamConnection} finds the session of each request from it. Threads which are neither bound
+ * nor loading for a page get the most recently created session that's still open, except for cookies,
+ * which are never shared that way (see {@link Session#cookieHandler()}).
+ */
+class Session {
+  private static final AtomicLong nextId = new AtomicLong(1);
+  private static final Map<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+  private static final Map<WebEngine, Session> engines = Collections.synchronizedMap(new WeakHashMap<WebEngine, Session>());
+  private static final AtomicReference<Session> latest = new AtomicReference<Session>();
+  private static final ThreadLocal<Session> bound = new ThreadLocal<Session>();
+  private static final Session detached = new Session("0");
+  private static final CookieHandler cookieHandler = new CookieHandler() {
+    @Override
+    public Map<String, List<String>> get(URI uri, Map<String, List<String>> requestHeaders) throws IOException {
+      Session session = cookieOwner(uri);
+      return session == null ? Collections.<String, List<String>> emptyMap() : session.cookieStore.get(uri, requestHeaders);
+    }
+
+    @Override
+    public void put(URI uri, Map<String, List<String>> responseHeaders) throws IOException {
+      Session session = cookieOwner(uri);
+      if (session != null) {
+        session.cookieStore.put(uri, responseHeaders);
+      }
+    }
+  };
+
+  /**
+   * Marks the access control context of pages created by a session.
+   */
+  private static class PageCombiner implements DomainCombiner {
+    private final Session session;
+
+    PageCombiner(Session session) {
+      this.session = session;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProtectionDomain[] combine(ProtectionDomain[] currentDomains, ProtectionDomain[] assignedDomains) {
+      if (currentDomains == null || currentDomains.length == 0) {
+        return assignedDomains;
+      }
+      if (assignedDomains == null || assignedDomains.length == 0) {
+        return currentDomains;
+      }
+      ProtectionDomain[] combined = Arrays.copyOf(currentDomains, currentDomains.length + assignedDomains.length);
+      System.arraycopy(assignedDomains, 0, combined, currentDomains.length, assignedDomains.length);
+      return combined;
+    }
+  }
+
+  private final String id;
+  private final AtomicReference<Settings> settings = new AtomicReference<Settings>();
+  private final StatusMonitor statusMonitor = new StatusMonitor();
+  private final CookieStore cookieStore = new CookieStore();
+  private final AtomicReference<StreamConnectionClient> client = new AtomicReference<StreamConnectionClient>();
+  private final AtomicLong pageLoads = new AtomicLong();
+  private final AtomicInteger actionsWaiting = new AtomicInteger();
+  private final AtomicLong actionsWaited = new AtomicLong();
+  private final AtomicLong actionWaitMS = new AtomicLong();
+  private final AtomicReference<Blocklist> blocklist = new AtomicReference<Blocklist>(Blocklist.EMPTY);
+  private final LogsServer logs;
+  private final AccessControlContext pageContext;
+
+  private Session(String id) {
+    this.id = id;
+    this.pageContext = new AccessControlContext(AccessController.getContext(), new PageCombiner(this));
+    LogsServer logsTmp = null;
+    try {
+      logsTmp = new LogsServer(this);
+    } catch (RemoteException e) {
+      Util.handleException(e);
+    }
+    this.logs = logsTmp;
+  }
+
+  /**
+   * Creates a session and makes it the fallback for threads which aren't bound to a session.
+   */
+  static Session create() {
+    Session session = new Session(Long.toString(nextId.getAndIncrement()));
+    sessions.put(session.id, session);
+    latest.set(session);
+    return session;
+  }
+
+  static Session current() {
+    Session session = bound.get();
+    if (session == null) {
+      session = ofPage();
+    }
+    if (session == null) {
+      session = latest.get();
+    }
+    return session == null ? detached : session;
+  }
+
+  /**
+   * @return the open session with the ID, or null
+   */
+  static Session forId(String id) {
+    return id == null ? null : sessions.get(id);
+  }
+
+  /**
+   * @return the session whose page the current thread is loading a resource for, or null
+   */
+  static Session ofPage() {
+    DomainCombiner combiner = AccessController.getContext().getDomainCombiner();
+    return combiner instanceof PageCombiner ? ((PageCombiner) combiner).session : null;
+  }
+
+  /**
+   * Finds the session whose cookies a request or script uses: the bound session, else the session of the page
+   * loading a resource, else the only session with a browser showing a document from the URI's host.
+   * When several sessions could own the cookies, none does.
+   *
+   * @return the session, or null if it's unknown
+   */
+  private static Session cookieOwner(URI uri) {
+    Session session = bound.get();
+    if (session == null) {
+      session = ofPage();
+    }
+    if (session == null && uri != null && uri.getHost() != null && Platform.isFxApplicationThread()) {
+      Set<Session> owners = new HashSet<Session>();
+      synchronized (engines) {
+        for (Map.Entry<WebEngine, Session> entry : engines.entrySet()) {
+          if (uri.getHost().equalsIgnoreCase(host(entry.getKey().getLocation()))) {
+            owners.add(entry.getValue());
+          }
+        }
+      }
+      if (owners.size() == 1) {
+        session = owners.iterator().next();
+      }
+    }
+    if (session == null && sessions.size() == 1) {
+      //with one browser in the JVM there's nobody else's cookies to leak
+      Iterator<Session> only = sessions.values().iterator();
+      session = only.hasNext() ? only.next() : null;
+    }
+    return session;
+  }
+
+  private static String host(String location) {
+    try {
+      return location == null || location.isEmpty() ? null : new URI(location).getHost();
+    } catch (Throwable t) {
+      return null;
+    }
+  }
+
+  /**
+   * Binds the current thread to a session.
+   *
+   * @return the session the thread was previously bound to, or null
+   */
+  static Session bind(Session session) {
+    Session prev = bound.get();
+    if (session == null) {
+      bound.remove();
+    } else {
+      bound.set(session);
+    }
+    return prev;
+  }
+
+  /**
+   * Cookie handler for WebKit which routes to the cookies of the session which owns the page.
+   * Cookies whose session can't be determined are neither read nor stored.
+   */
+  static CookieHandler cookieHandler() {
+    return cookieHandler;
+  }
+
+  /**
+   * Performs an action, such as creating a web view, in this session's page context.
+   * Resources loaded by pages created during the action are attributed to this session.
+   */
+  <T> T inPage(PrivilegedAction<T> action) {
+    return AccessController.doPrivileged(action, pageContext);
+  }
+
+  /**
+   * Associates a browser window's engine with this session.
+   */
+  void addEngine(WebEngine engine) {
+    engines.put(engine, this);
+  }
+
+  String id() {
+    return id;
+  }
+
+  Settings settings() {
+    return settings.get();
+  }
+
+  StatusMonitor statusMonitor() {
+    return statusMonitor;
+  }
+
+  LogsServer logs() {
+    return logs;
+  }
+
+  CookieStore cookieStore() {
+    return cookieStore;
+  }
+
+  StreamConnectionClient client() {
+    return client.get();
+  }
+
+  Blocklist blocklist() {
+    return blocklist.get();
+  }
+
+  void pageLoaded() {
+    pageLoads.incrementAndGet();
+  }
+
+  /**
+   * @return number of top-level pages this session has finished loading
+   */
+  long pageLoads() {
+    return pageLoads.get();
+  }
+
+  /**
+   * Called when a browser action starts waiting for a page load to finish.
+   */
+  void actionParked() {
+    actionsWaiting.incrementAndGet();
+    actionsWaited.incrementAndGet();
+  }
+
+  /**
+   * Called when a browser action stops waiting for a page load, because the load finished or the action was cancelled.
+   */
+  void actionUnparked(long waitedMS) {
+    actionsWaiting.decrementAndGet();
+    actionWaitMS.addAndGet(waitedMS);
+  }
+
+  /**
+   * @return number of browser actions waiting for a page load to finish
+   */
+  int actionsWaiting() {
+    return actionsWaiting.get();
+  }
+
+  /**
+   * @return number of browser actions which have waited for a page load to finish
+   */
+  long actionsWaited() {
+    return actionsWaited.get();
+  }
+
+  /**
+   * @return total milliseconds browser actions have waited for page loads to finish
+   */
+  long actionWaitMS() {
+    return actionWaitMS.get();
+  }
+
+  void updateSettings(Settings settings) {
+    Session prev = bind(this);
+    try {
+      this.settings.set(settings);
+      if (settings != null) {
+        if (!settings.blockLists().equals(blocklist.get().files())) {
+          blocklist.set(Blocklist.load(settings.blockLists()));
+        }
+        //keep warm connections and TLS sessions unless settings they depend on changed
+        StreamConnectionClient prevClient = client.get();
+        if (prevClient == null || !prevClient.matches(settings)) {
+          client.set(null);
+          if (prevClient != null) {
+            prevClient.shutDown();
+          }
+          client.set(new StreamConnectionClient(prevClient));
+        } else {
+          prevClient.logStats();
+        }
+      }
+    } finally {
+      bind(prev);
+    }
+  }
+
+  void close() {
+    sessions.remove(id);
+    synchronized (engines) {
+      engines.values().removeIf(this::equals);
+    }
+    if (latest.compareAndSet(this, null)) {
+      Iterator<Session> remaining = sessions.values().iterator();
+      if (remaining.hasNext()) {
+        latest.compareAndSet(null, remaining.next());
+      }
+    }
+    StreamConnectionClient prevClient = client.getAndSet(null);
+    if (prevClient != null) {
+      prevClient.shutDown();
+    }
+    if (bound.get() == this) {
+      bound.remove();
+    }
+  }
+}
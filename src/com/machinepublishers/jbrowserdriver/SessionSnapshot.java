@@ -0,0 +1,302 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.http.cookie.ClientCookie;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.cookie.SetCookie2;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.impl.cookie.BasicClientCookie2;
+
+/**
+ * Cookies and current URL of a browser, in a compact binary form which can be saved and restored quickly.
+ * <p>
+ * Create snapshots with {@link JBrowserDriver#exportSession()} and restore them with
+ * {@link JBrowserDriver#importSession(SessionSnapshot)}. Snapshots of persistent cookies are also saved
+ * when the browser quits if {@link Settings.Builder#persistCookies(boolean)} is enabled.
+ */
+public class SessionSnapshot implements Serializable {
+  private static final int MAGIC = 0x4a424453;
+  private static final int VERSION = 1;
+  private static final String[] ATTRIBUTES = new String[] {
+      ClientCookie.VERSION_ATTR, ClientCookie.PATH_ATTR, ClientCookie.DOMAIN_ATTR, ClientCookie.MAX_AGE_ATTR,
+      ClientCookie.SECURE_ATTR, ClientCookie.COMMENT_ATTR, ClientCookie.EXPIRES_ATTR, ClientCookie.PORT_ATTR,
+      ClientCookie.COMMENTURL_ATTR, ClientCookie.DISCARD_ATTR, "httponly" };
+  private static final int COOKIE2 = 1;
+  private static final int DISCARD = 2;
+  private static final int SECURE = 4;
+
+  private final String url;
+  private final int cookieCount;
+  private final byte[] cookies;
+
+  private SessionSnapshot(String url, int cookieCount, byte[] cookies) {
+    this.url = url;
+    this.cookieCount = cookieCount;
+    this.cookies = cookies;
+  }
+
+  static SessionSnapshot create(String url, List<Cookie> cookies) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(cookies.size() * 128);
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (Cookie cookie : cookies) {
+        write(out, cookie);
+      }
+      out.flush();
+      return new SessionSnapshot(url, cookies.size(), bytes.toByteArray());
+    } catch (IOException e) {
+      //not thrown by in-memory streams
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return URL of the page the browser was on, or null
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  public int getCookieCount() {
+    return cookieCount;
+  }
+
+  /**
+   * @return the snapshot in its binary form, which can be read back with {@link #fromBytes(byte[])}
+   */
+  public byte[] toBytes() {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(cookies.length + 64);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, url);
+      out.writeInt(cookieCount);
+      out.writeInt(cookies.length);
+      out.write(cookies);
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param bytes
+   *          produced by {@link #toBytes()}
+   * @return the snapshot
+   * @throws IOException
+   *           if the bytes aren't a snapshot or are corrupt
+   */
+  public static SessionSnapshot fromBytes(byte[] bytes) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a session snapshot.");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported session snapshot version: " + version);
+    }
+    String url = readString(in);
+    int cookieCount = in.readInt();
+    byte[] cookies = new byte[checkLength(in, in.readInt(), 1)];
+    in.readFully(cookies);
+    if (in.available() != 0) {
+      throw new IOException("Corrupt session snapshot: unexpected data after the cookies.");
+    }
+    //decode now so a corrupt snapshot is rejected here rather than when it's imported
+    decode(cookies, cookieCount);
+    return new SessionSnapshot(url, cookieCount, cookies);
+  }
+
+  /**
+   * Saves the snapshot, replacing the file atomically where the file system supports it.
+   *
+   * @param file
+   * @throws IOException
+   */
+  public void writeTo(File file) throws IOException {
+    File tmp = new File(file.getPath() + ".tmp");
+    Files.write(tmp.toPath(), toBytes());
+    try {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * @param file
+   *          written by {@link #writeTo(File)}
+   * @return the snapshot
+   * @throws IOException
+   */
+  public static SessionSnapshot readFrom(File file) throws IOException {
+    return fromBytes(Files.readAllBytes(file.toPath()));
+  }
+
+  List<Cookie> cookies() {
+    try {
+      return decode(cookies, cookieCount);
+    } catch (IOException e) {
+      //snapshots are validated when they're read, so this is only reached if one was tampered with in memory
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static List<Cookie> decode(byte[] cookies, int cookieCount) throws IOException {
+    if (cookieCount < 0 || cookieCount > cookies.length) {
+      throw new IOException("Corrupt session snapshot: invalid cookie count " + cookieCount + ".");
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(cookies));
+    List<Cookie> list = new ArrayList<Cookie>(cookieCount);
+    for (int i = 0; i < cookieCount; i++) {
+      list.add(read(in));
+    }
+    if (in.available() != 0) {
+      throw new IOException("Corrupt session snapshot: unexpected data after the last cookie.");
+    }
+    return list;
+  }
+
+  /**
+   * @return the length, if that many items of the given size remain in the stream
+   * @throws IOException
+   *           if the length is negative or exceeds the remaining bytes
+   */
+  private static int checkLength(DataInputStream in, int length, int itemSize) throws IOException {
+    //available() is exact for in-memory streams
+    if (length < 0 || length > in.available() / itemSize) {
+      throw new IOException("Corrupt session snapshot: invalid length " + length + ".");
+    }
+    return length;
+  }
+
+  private static void write(DataOutputStream out, Cookie cookie) throws IOException {
+    int flags = (cookie instanceof SetCookie2 ? COOKIE2 : 0)
+        | (cookie.isPersistent() ? 0 : DISCARD)
+        | (cookie.isSecure() ? SECURE : 0);
+    out.writeByte(flags);
+    writeString(out, cookie.getName());
+    writeString(out, cookie.getValue());
+    writeString(out, cookie.getDomain());
+    writeString(out, cookie.getPath());
+    writeString(out, cookie.getComment());
+    out.writeLong(cookie.getExpiryDate() == null ? Long.MIN_VALUE : cookie.getExpiryDate().getTime());
+    Date created = cookie instanceof BasicClientCookie ? ((BasicClientCookie) cookie).getCreationDate() : null;
+    out.writeLong(created == null ? Long.MIN_VALUE : created.getTime());
+    out.writeInt(cookie.getVersion());
+    if ((flags & COOKIE2) != 0) {
+      writeString(out, cookie.getCommentURL());
+      int[] ports = cookie.getPorts();
+      out.writeInt(ports == null ? -1 : ports.length);
+      for (int i = 0; ports != null && i < ports.length; i++) {
+        out.writeInt(ports[i]);
+      }
+    }
+    int attributes = 0;
+    if (cookie instanceof ClientCookie) {
+      for (int i = 0; i < ATTRIBUTES.length; i++) {
+        if (((ClientCookie) cookie).containsAttribute(ATTRIBUTES[i])) {
+          attributes |= 1 << i;
+        }
+      }
+    }
+    out.writeShort(attributes);
+    for (int i = 0; i < ATTRIBUTES.length; i++) {
+      if ((attributes & (1 << i)) != 0) {
+        writeString(out, ((ClientCookie) cookie).getAttribute(ATTRIBUTES[i]));
+      }
+    }
+  }
+
+  private static Cookie read(DataInputStream in) throws IOException {
+    int flags = in.readByte();
+    String name = readString(in);
+    String value = readString(in);
+    if (name == null) {
+      throw new IOException("Corrupt session snapshot: cookie without a name.");
+    }
+    BasicClientCookie cookie = (flags & COOKIE2) != 0
+        ? new BasicClientCookie2(name, value) : new BasicClientCookie(name, value);
+    cookie.setDomain(readString(in));
+    cookie.setPath(readString(in));
+    cookie.setComment(readString(in));
+    long expiry = in.readLong();
+    cookie.setExpiryDate(expiry == Long.MIN_VALUE ? null : new Date(expiry));
+    long created = in.readLong();
+    cookie.setCreationDate(created == Long.MIN_VALUE ? null : new Date(created));
+    cookie.setVersion(in.readInt());
+    cookie.setSecure((flags & SECURE) != 0);
+    if ((flags & COOKIE2) != 0) {
+      BasicClientCookie2 cookie2 = (BasicClientCookie2) cookie;
+      cookie2.setCommentURL(readString(in));
+      int ports = in.readInt();
+      if (ports != -1) {
+        int[] portArray = new int[checkLength(in, ports, 4)];
+        for (int i = 0; i < ports; i++) {
+          portArray[i] = in.readInt();
+        }
+        cookie2.setPorts(portArray);
+      }
+      cookie2.setDiscard((flags & DISCARD) != 0);
+    }
+    int attributes = in.readShort();
+    for (int i = 0; i < ATTRIBUTES.length; i++) {
+      if ((attributes & (1 << i)) != 0) {
+        cookie.setAttribute(ATTRIBUTES[i], readString(in));
+      }
+    }
+    return cookie;
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    if (str == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length == -1) {
+      return null;
+    }
+    byte[] bytes = new byte[checkLength(in, length, 1)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -26,8 +26,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -120,6 +122,7 @@ public class Settings implements Serializable {
     AJAX_WAIT("jbd.ajaxwait"),
     AJAX_RESOURCE_TIMEOUT("jbd.ajaxresourcetimeout"),
     BLOCK_ADS("jbd.blockads"),
+    BLOCK_LISTS("jbd.blocklists"),
     QUICK_RENDER("jbd.quickrender"),
     MAX_ROUTE_CONNECTIONS("jbd.maxrouteconnections"),
     MAX_CONNECTIONS("jbd.maxconnections"),
@@ -142,6 +145,11 @@ public class Settings implements Serializable {
     CACHE_DIR("jbd.cachedir"),
     CACHE_ENTRIES("jbd.cacheentries"),
     CACHE_ENTRY_SIZE("jbd.cacheentrysize"),
+    CACHE_STORE("jbd.cachestore"),
+    CACHE_MEMORY_SIZE("jbd.cachememorysize"),
+    CACHE_MEMORY_POLICY("jbd.cachememorypolicy"),
+    CACHE_MAX_STALE("jbd.cachemaxstale"),
+    CACHE_IGNORED_PARAMS("jbd.cacheignoredparams"),
     HOSTNAME_VERIFICATION("jbd.hostnameverification"),
     JAVASCRIPT("jbd.javascript"),
     SOCKET_TIMEOUT_MS("jbd.sockettimeout"),
@@ -158,6 +166,11 @@ public class Settings implements Serializable {
     JAVA_BINARY("jbd.javabinary"),
     JAVA_EXPORT_MODULES("jbd.javaexportmodules"),
     USER_DATA_DIRECTORY("jbd.userdatadirectory"),
+    PERSIST_COOKIES("jbd.persistcookies"),
+    HOSTS("jbd.hosts"),
+    DNS_PREFETCH("jbd.dnsprefetch"),
+    PRECONNECT("jbd.preconnect"),
+    HTTP2("jbd.http2"),
     CSRF_REQUEST_TOKEN("jbd.csrfreqtoken"),
     CSRF_RESPONSE_TOKEN("jbd.csrfresptoken"),
     BLOCK_MEDIA("jbd.blockmedia"),
@@ -177,6 +190,43 @@ public class Settings implements Serializable {
     }
   }
 
+  /**
+   * How the web cache is persisted on disk.
+   *
+   * @see Settings.Builder#cache(CacheStore)
+   */
+  public enum CacheStore {
+    /**
+     * Each cache entry is serialized to its own file.
+     */
+    FILE,
+    /**
+     * Cache entries are appended to a few large segment files which are read through memory mapping.
+     * Segments with mostly stale entries are compacted in the background.
+     * Only one browser at a time can use a cache directory this way; others sharing the directory,
+     * in this JVM or another, fall back to {@link CacheStore#FILE}.
+     */
+    SEGMENTED
+  }
+
+  /**
+   * How entries are chosen for eviction from the in-memory web cache.
+   *
+   * @see Settings.Builder#cacheMemoryPolicy(CacheMemoryPolicy)
+   */
+  public enum CacheMemoryPolicy {
+    /**
+     * Evict the least recently used entry.
+     */
+    LRU,
+    /**
+     * Evict the least recently used entry, but only admit a new entry if it has been
+     * requested more often than the entry it would evict.
+     * This keeps one-off resources from flushing out frequently used ones.
+     */
+    TINY_LFU
+  }
+
   /**
    * Helps build a Settings object which configures jBrowserDriver.
    * Settings objects can safely be re-used
@@ -198,12 +248,18 @@ public class Settings implements Serializable {
     private File cacheDir;
     private int cacheEntries = 10 * 1000;
     private long cacheEntrySize = 1000 * 1000;
+    private CacheStore cacheStore = CacheStore.FILE;
+    private long cacheMemorySize = 0;
+    private CacheMemoryPolicy cacheMemoryPolicy = CacheMemoryPolicy.TINY_LFU;
+    private CachePolicy cachePolicy = new CachePolicy();
+    private final Map<String, CachePolicy> cachePolicies = new LinkedHashMap<String, CachePolicy>();
     private String portRanges;
     private int processes = 2 * Runtime.getRuntime().availableProcessors();
     private boolean headless = true;
     private long ajaxWait = 150;
     private long ajaxResourceTimeout = 2000;
     private boolean blockAds;
+    private File[] blockLists;
     private boolean quickRender;
     private int maxRouteConnections = 8;
     private int maxConnections = 300;
@@ -224,6 +280,11 @@ public class Settings implements Serializable {
     private String javaBinary;
     private boolean javaExportModules;
     private File userDataDirectory;
+    private boolean persistCookies;
+    private Map<String, String> hosts;
+    private boolean dnsPrefetch;
+    private boolean preconnect;
+    private boolean http2;
     private String csrfRequestToken;
     private String csrfResponseToken;
     private InetAddress nicAddress;
@@ -468,6 +529,30 @@ public class Settings implements Serializable {
       return this;
     }
 
+    /**
+     * Enables caching of web pages (see {@link Settings.Builder#cache(boolean)}) and sets how
+     * cache entries are stored on disk.
+     * <p>
+     * {@link CacheStore#SEGMENTED} avoids a file create, file lock, and Java deserialization per cache access
+     * and is recommended when many pages are served from cache.
+     * <p>
+     * Defaults to {@link CacheStore#FILE}.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.cachestore</code> overrides this setting.</li>
+     * <li>{@link Capabilities} name <code>jbd.cachestore</code> alternately configures this setting.</li>
+     * </ul><p>
+     *
+     * @param cacheStore
+     *
+     * @return this Builder
+     */
+    public Builder cache(CacheStore cacheStore) {
+      this.cache = true;
+      this.cacheStore = cacheStore;
+      return this;
+    }
+
     /**
      * Directory where the web cache resides--this enables sharing a cache across instances and after JVM restarts.
      * <p>
@@ -523,6 +608,86 @@ public class Settings implements Serializable {
       return this;
     }
 
+    /**
+     * Set maximum total size of cached files to also hold in memory, in front of the cache on disk.
+     * Frequently requested resources (e.g., a site's stylesheets and scripts) are then served without
+     * touching the disk. Zero disables the in-memory cache.
+     * <p>
+     * Defaults to 0.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.cachememorysize</code> overrides this setting.</li>
+     * <li>{@link Capabilities} name <code>jbd.cachememorysize</code> alternately configures this setting.</li>
+     * </ul><p>
+     *
+     * @param bytes
+     * @return this Builder
+     */
+    public Builder cacheMemorySize(long bytes) {
+      this.cacheMemorySize = bytes;
+      return this;
+    }
+
+    /**
+     * Set how entries are evicted from the in-memory cache (see {@link Settings.Builder#cacheMemorySize(long)}).
+     * <p>
+     * Defaults to {@link CacheMemoryPolicy#TINY_LFU}.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.cachememorypolicy</code> overrides this setting.</li>
+     * <li>{@link Capabilities} name <code>jbd.cachememorypolicy</code> alternately configures this setting.</li>
+     * </ul><p>
+     *
+     * @param cacheMemoryPolicy
+     * @return this Builder
+     */
+    public Builder cacheMemoryPolicy(CacheMemoryPolicy cacheMemoryPolicy) {
+      this.cacheMemoryPolicy = cacheMemoryPolicy;
+      return this;
+    }
+
+    /**
+     * Set how the cache treats responses, for instance to keep serving assets marked <code>no-cache</code>
+     * across the pages of a crawl, or to share cache entries between URLs which differ only by cache busters.
+     * Applies to hosts without their own policy (see {@link Settings.Builder#cachePolicy(String, CachePolicy)}).
+     * <p>
+     * Defaults to standard HTTP caching.
+     *
+     * <p><ul>
+     * <li>Java system properties <code>jbd.cachemaxstale</code> (seconds) and <code>jbd.cacheignoredparams</code>
+     * (comma-separated) override this setting.</li>
+     * <li>{@link Capabilities} names <code>jbd.cachemaxstale</code> (seconds) and <code>jbd.cacheignoredparams</code>
+     * (comma-separated) alternately configure this setting.</li>
+     * </ul><p>
+     *
+     * @param cachePolicy
+     * @return this Builder
+     */
+    public Builder cachePolicy(CachePolicy cachePolicy) {
+      this.cachePolicy = cachePolicy;
+      return this;
+    }
+
+    /**
+     * Set how the cache treats responses from a host and its subdomains, overriding
+     * {@link Settings.Builder#cachePolicy(CachePolicy)}. The most specific host configured applies.
+     * <p>
+     * Host policies can only be configured with this method.
+     *
+     * @param host
+     * @param cachePolicy
+     *          the host's policy, or null to remove it
+     * @return this Builder
+     */
+    public Builder cachePolicy(String host, CachePolicy cachePolicy) {
+      if (cachePolicy == null) {
+        this.cachePolicies.remove(host.toLowerCase(Locale.ENGLISH));
+      } else {
+        this.cachePolicies.put(host.toLowerCase(Locale.ENGLISH), cachePolicy);
+      }
+      return this;
+    }
+
     /**
      * @deprecated Will be removed in v2.0.0. Use Settings.Builder.processes(..) instead.
      */
@@ -757,6 +922,28 @@ public class Settings implements Serializable {
       return this;
     }
 
+    /**
+     * Files listing domains whose requests should be blocked, in addition to any blocked by {@link #blockAds(boolean)}.
+     * <p>
+     * Each line is a domain, a hosts file entry, or an EasyList-style domain rule such as
+     * <code>||ads.example.com^</code>. Exception rules such as <code>@@||example.com^</code> allow a domain
+     * even if it's otherwise blocked. Subdomains of a listed domain are matched too.
+     * <p>
+     * By default no files are used.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.blocklists</code> overrides this setting. The paths must be separated by the platform path separator.</li>
+     * <li>{@link Capabilities} name <code>jbd.blocklists</code> alternately configures this setting. The paths must be separated by the platform path separator.</li>
+     * </ul><p>
+     *
+     * @param blockLists
+     * @return this Builder
+     */
+    public Builder blockLists(File... blockLists) {
+      this.blockLists = blockLists;
+      return this;
+    }
+
     /**
      * Exclude web page images and binary data from rendering.
      * <p>
@@ -1148,6 +1335,116 @@ public class Settings implements Serializable {
       return this;
     }
 
+    /**
+     * Whether cookies should be saved in the {@link #userDataDirectory(File)} when the browser quits,
+     * and restored from there when the browser starts. Has no effect unless a user data directory is set.
+     * Resetting the browser clears its cookies without saving or restoring them.
+     * <p>
+     * Only persistent cookies are saved, not session cookies. They're saved as a {@link SessionSnapshot},
+     * which also records the current URL, in the file <code>jbd-session.bin</code>. Browsers which share
+     * a user data directory share this file: each restores the cookies saved last and replaces them when it quits.
+     * <p>
+     * Defaults to <code>false</code>.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.persistcookies</code> overrides this setting.</li>
+     * <li>{@link Capabilities} name <code>jbd.persistcookies</code> alternately configures this setting.</li>
+     * </ul><p>
+     *
+     * @param persistCookies
+     * @return this Builder
+     */
+    public Builder persistCookies(boolean persistCookies) {
+      this.persistCookies = persistCookies;
+      return this;
+    }
+
+    /**
+     * IP addresses to use for host names instead of looking them up in DNS, like entries in a hosts file.
+     * Useful for pointing a site at a local stand-in during tests. Values which aren't IP addresses are ignored.
+     * <p>
+     * Other host names are looked up in DNS and the answers cached for a short time.
+     * <p>
+     * By default no hosts are overridden.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.hosts</code> overrides this setting. Entries are formatted as <code>host=address</code> and separated by commas.</li>
+     * <li>{@link Capabilities} name <code>jbd.hosts</code> alternately configures this setting. Entries are formatted as <code>host=address</code> and separated by commas.</li>
+     * </ul><p>
+     *
+     * @param hosts
+     *          IP address for each host name
+     * @return this Builder
+     */
+    public Builder hosts(Map<String, String> hosts) {
+      this.hosts = hosts;
+      return this;
+    }
+
+    /**
+     * Look up the host names linked from a page in the background while the page is still loading,
+     * so the page's resources don't wait on DNS. Only applies when no proxy is used.
+     * <p>
+     * Defaults to <code>false</code>.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.dnsprefetch</code> overrides this setting.</li>
+     * <li>{@link Capabilities} name <code>jbd.dnsprefetch</code> alternately configures this setting.</li>
+     * </ul><p>
+     *
+     * @param dnsPrefetch
+     * @return this Builder
+     */
+    public Builder dnsPrefetch(boolean dnsPrefetch) {
+      this.dnsPrefetch = dnsPrefetch;
+      return this;
+    }
+
+    /**
+     * Open connections to the origins of a page's scripts, and of links such as <code>rel=preconnect</code>
+     * and <code>rel=preload</code>, while the page is still loading, so the resources don't wait on connection setup.
+     * At most a few origins are preconnected per page, with one connection each. Only applies when no proxy is used.
+     * <p>
+     * Defaults to <code>false</code>.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.preconnect</code> overrides this setting.</li>
+     * <li>{@link Capabilities} name <code>jbd.preconnect</code> alternately configures this setting.</li>
+     * </ul><p>
+     *
+     * @param preconnect
+     * @return this Builder
+     */
+    public Builder preconnect(boolean preconnect) {
+      this.preconnect = preconnect;
+      return this;
+    }
+
+    /**
+     * Send requests over HTTP/2 where servers support it, multiplexing each origin's requests over one connection
+     * rather than opening up to {@link #maxRouteConnections(int)} HTTP/1.1 connections. Other servers are sent
+     * HTTP/1.1 over the same transport. Cookies, the cache, proxies, SSL, hostname verification, local IP, and hosts
+     * settings all apply as they do otherwise, although a local IP isn't bound for SOCKS proxies and
+     * {@link #preconnect(boolean)} has no effect.
+     * <p>
+     * HTTP/2 is negotiated with ALPN, which requires Java 9 or later, or Java 8 update 252 or later.
+     * Older JVMs use HTTP/1.1.
+     * <p>
+     * Defaults to <code>false</code>.
+     *
+     * <p><ul>
+     * <li>Java system property <code>jbd.http2</code> overrides this setting.</li>
+     * <li>{@link Capabilities} name <code>jbd.http2</code> alternately configures this setting.</li>
+     * </ul><p>
+     *
+     * @param http2
+     * @return this Builder
+     */
+    public Builder http2(boolean http2) {
+      this.http2 = http2;
+      return this;
+    }
+
     /**
      * Used for binding to a specific NIC
      *
@@ -1263,12 +1560,30 @@ public class Settings implements Serializable {
       set(capabilities, PropertyName.CACHE_ENTRY_SIZE, this.cacheEntrySize);
       set(capabilities, PropertyName.CACHE_ENTRIES, this.cacheEntries);
       set(capabilities, PropertyName.CACHE, this.cache);
+      if (this.cacheStore != null) {
+        set(capabilities, PropertyName.CACHE_STORE, this.cacheStore.name());
+      }
+      set(capabilities, PropertyName.CACHE_MEMORY_SIZE, this.cacheMemorySize);
+      if (this.cacheMemoryPolicy != null) {
+        set(capabilities, PropertyName.CACHE_MEMORY_POLICY, this.cacheMemoryPolicy.name());
+      }
+      if (this.cachePolicy != null) {
+        set(capabilities, PropertyName.CACHE_MAX_STALE, this.cachePolicy.maxStale());
+        set(capabilities, PropertyName.CACHE_IGNORED_PARAMS, StringUtils.join(this.cachePolicy.ignoredParams(), ","));
+      }
       set(capabilities, PropertyName.IGNORE_DIALOGS, this.ignoreDialogs);
       set(capabilities, PropertyName.SAVE_ATTACHMENTS, this.saveAttachments);
       set(capabilities, PropertyName.SAVE_MEDIA, this.saveMedia);
       set(capabilities, PropertyName.AJAX_WAIT, this.ajaxWait);
       set(capabilities, PropertyName.AJAX_RESOURCE_TIMEOUT, this.ajaxResourceTimeout);
       set(capabilities, PropertyName.BLOCK_ADS, this.blockAds);
+      if (this.blockLists != null && this.blockLists.length > 0) {
+        List<String> paths = new ArrayList<String>();
+        for (File file : this.blockLists) {
+          paths.add(file.getAbsolutePath());
+        }
+        set(capabilities, PropertyName.BLOCK_LISTS, StringUtils.join(paths, File.pathSeparator));
+      }
       set(capabilities, PropertyName.QUICK_RENDER, this.quickRender);
       set(capabilities, PropertyName.MAX_ROUTE_CONNECTIONS, this.maxRouteConnections);
       set(capabilities, PropertyName.MAX_CONNECTIONS, this.maxConnections);
@@ -1307,6 +1622,17 @@ public class Settings implements Serializable {
       if (this.userDataDirectory != null) {
         capabilities.setCapability(PropertyName.USER_DATA_DIRECTORY.propertyName, this.userDataDirectory.getAbsolutePath());
       }
+      set(capabilities, PropertyName.PERSIST_COOKIES, this.persistCookies);
+      if (this.hosts != null && !this.hosts.isEmpty()) {
+        List<String> entries = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : this.hosts.entrySet()) {
+          entries.add(entry.getKey() + "=" + entry.getValue());
+        }
+        set(capabilities, PropertyName.HOSTS, StringUtils.join(entries, ","));
+      }
+      set(capabilities, PropertyName.DNS_PREFETCH, this.dnsPrefetch);
+      set(capabilities, PropertyName.PRECONNECT, this.preconnect);
+      set(capabilities, PropertyName.HTTP2, this.http2);
 
       if (this.timezone != null) {
         set(capabilities, PropertyName.TIMEZONE, this.timezone.name());
@@ -1487,11 +1813,17 @@ public class Settings implements Serializable {
   private final File cacheDir;
   private final int cacheEntries;
   private final long cacheEntrySize;
+  private final CacheStore cacheStore;
+  private final long cacheMemorySize;
+  private final CacheMemoryPolicy cacheMemoryPolicy;
+  private final CachePolicy cachePolicy;
+  private final Map<String, CachePolicy> cachePolicies;
   private final List<PortGroup> portGroups;
   private final boolean headless;
   private final long ajaxWait;
   private final long ajaxResourceTimeout;
   private final boolean blockAds;
+  private final List<File> blockLists;
   private final boolean quickRender;
   private final int maxRouteConnections;
   private final int maxConnections;
@@ -1514,6 +1846,11 @@ public class Settings implements Serializable {
   private final String javaBinary;
   private final boolean javaExportModules;
   private final File userDataDirectory;
+  private final boolean persistCookies;
+  private final Map<String, String> hosts;
+  private final boolean dnsPrefetch;
+  private final boolean preconnect;
+  private final boolean http2;
   private final String csrfRequestToken;
   private final String csrfResponseToken;
   private final InetAddress nicAddress;
@@ -1528,12 +1865,37 @@ public class Settings implements Serializable {
     this.cacheEntrySize = parse(properties, PropertyName.CACHE_ENTRY_SIZE, builder.cacheEntrySize);
     this.cacheEntries = parse(properties, PropertyName.CACHE_ENTRIES, builder.cacheEntries);
     this.cache = parse(properties, PropertyName.CACHE, builder.cache);
+    String cacheStoreTmp = parse(properties, PropertyName.CACHE_STORE,
+        builder.cacheStore == null ? defaults.cacheStore.name() : builder.cacheStore.name());
+    this.cacheStore = CacheStore.valueOf(cacheStoreTmp.toUpperCase());
+    this.cacheMemorySize = parse(properties, PropertyName.CACHE_MEMORY_SIZE, builder.cacheMemorySize);
+    String cacheMemoryPolicyTmp = parse(properties, PropertyName.CACHE_MEMORY_POLICY,
+        builder.cacheMemoryPolicy == null ? defaults.cacheMemoryPolicy.name() : builder.cacheMemoryPolicy.name());
+    this.cacheMemoryPolicy = CacheMemoryPolicy.valueOf(cacheMemoryPolicyTmp.toUpperCase());
+    CachePolicy cachePolicyTmp = builder.cachePolicy == null ? defaults.cachePolicy : builder.cachePolicy;
+    long cacheMaxStale = parse(properties, PropertyName.CACHE_MAX_STALE, cachePolicyTmp.maxStale());
+    String cacheIgnoredParams = parse(properties, PropertyName.CACHE_IGNORED_PARAMS,
+        StringUtils.join(cachePolicyTmp.ignoredParams(), ","));
+    this.cachePolicy = new CachePolicy(cacheMaxStale, StringUtils.isEmpty(cacheIgnoredParams)
+        ? new String[0] : StringUtils.stripAll(StringUtils.split(cacheIgnoredParams, ',')));
+    this.cachePolicies = Collections.unmodifiableMap(new LinkedHashMap<String, CachePolicy>(builder.cachePolicies));
     this.ignoreDialogs = parse(properties, PropertyName.IGNORE_DIALOGS, builder.ignoreDialogs);
     this.saveAttachments = parse(properties, PropertyName.SAVE_ATTACHMENTS, builder.saveAttachments);
     this.saveMedia = parse(properties, PropertyName.SAVE_MEDIA, builder.saveMedia);
     this.ajaxWait = parse(properties, PropertyName.AJAX_WAIT, builder.ajaxWait);
     this.ajaxResourceTimeout = parse(properties, PropertyName.AJAX_RESOURCE_TIMEOUT, builder.ajaxResourceTimeout);
     this.blockAds = parse(properties, PropertyName.BLOCK_ADS, builder.blockAds);
+    List<File> blockListsTmp = new ArrayList<File>();
+    if (properties.get(PropertyName.BLOCK_LISTS.propertyName) != null) {
+      for (String path : properties.get(PropertyName.BLOCK_LISTS.propertyName).toString().split(Pattern.quote(File.pathSeparator))) {
+        if (!path.isEmpty()) {
+          blockListsTmp.add(new File(path));
+        }
+      }
+    } else if (builder.blockLists != null) {
+      blockListsTmp.addAll(Arrays.asList(builder.blockLists));
+    }
+    this.blockLists = Collections.unmodifiableList(blockListsTmp);
     this.quickRender = parse(properties, PropertyName.QUICK_RENDER, builder.quickRender);
     this.maxRouteConnections = parse(properties, PropertyName.MAX_ROUTE_CONNECTIONS, builder.maxRouteConnections);
     this.maxConnections = parse(properties, PropertyName.MAX_CONNECTIONS, builder.maxConnections);
@@ -1587,6 +1949,22 @@ public class Settings implements Serializable {
     this.connectionReqTimeout = parse(properties, PropertyName.CONNECTION_REQ_TIMEOUT_MS, builder.connectionReqTimeout);
     this.cacheDir = parse(properties, PropertyName.CACHE_DIR, builder.cacheDir);
     this.userDataDirectory = parse(properties, PropertyName.USER_DATA_DIRECTORY, builder.userDataDirectory);
+    this.persistCookies = parse(properties, PropertyName.PERSIST_COOKIES, builder.persistCookies);
+    Map<String, String> hostsTmp = new LinkedHashMap<String, String>();
+    if (properties.get(PropertyName.HOSTS.propertyName) != null) {
+      for (String entry : properties.get(PropertyName.HOSTS.propertyName).toString().split(",")) {
+        int separator = entry.indexOf('=');
+        if (separator > 0) {
+          hostsTmp.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+      }
+    } else if (builder.hosts != null) {
+      hostsTmp.putAll(builder.hosts);
+    }
+    this.hosts = Collections.unmodifiableMap(hostsTmp);
+    this.dnsPrefetch = parse(properties, PropertyName.DNS_PREFETCH, builder.dnsPrefetch);
+    this.preconnect = parse(properties, PropertyName.PRECONNECT, builder.preconnect);
+    this.http2 = parse(properties, PropertyName.HTTP2, builder.http2);
     this.csrfRequestToken = parse(properties, PropertyName.CSRF_REQUEST_TOKEN, builder.csrfRequestToken);
     this.csrfResponseToken = parse(properties, PropertyName.CSRF_RESPONSE_TOKEN, builder.csrfResponseToken);
     this.host = parse(properties, PropertyName.HOST, builder.host);
@@ -1765,6 +2143,43 @@ public class Settings implements Serializable {
     return cacheEntrySize;
   }
 
+  CacheStore cacheStore() {
+    return cacheStore;
+  }
+
+  long cacheMemorySize() {
+    return cacheMemorySize;
+  }
+
+  CacheMemoryPolicy cacheMemoryPolicy() {
+    return cacheMemoryPolicy;
+  }
+
+  /**
+   * @return the cache policy of the most specific configured host, or the default policy
+   */
+  CachePolicy cachePolicy(String host) {
+    if (host != null && !cachePolicies.isEmpty()) {
+      String domain = host.toLowerCase(Locale.ENGLISH);
+      while (true) {
+        CachePolicy policy = cachePolicies.get(domain);
+        if (policy != null) {
+          return policy;
+        }
+        int dot = domain.indexOf('.');
+        if (dot == -1) {
+          break;
+        }
+        domain = domain.substring(dot + 1);
+      }
+    }
+    return cachePolicy;
+  }
+
+  Map<String, CachePolicy> cachePolicies() {
+    return cachePolicies;
+  }
+
   List<PortGroup> portGroups() {
     return portGroups;
   }
@@ -1789,6 +2204,10 @@ public class Settings implements Serializable {
     return blockAds;
   }
 
+  List<File> blockLists() {
+    return blockLists;
+  }
+
   boolean quickRender() {
     return quickRender;
   }
@@ -1873,6 +2292,26 @@ public class Settings implements Serializable {
     return userDataDirectory;
   }
 
+  boolean persistCookies() {
+    return persistCookies;
+  }
+
+  Map<String, String> hosts() {
+    return hosts;
+  }
+
+  boolean dnsPrefetch() {
+    return dnsPrefetch;
+  }
+
+  boolean preconnect() {
+    return preconnect;
+  }
+
+  boolean http2() {
+    return http2;
+  }
+
   String getCsrfRequestToken() {
     return csrfRequestToken;
   }
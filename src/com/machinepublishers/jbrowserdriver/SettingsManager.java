@@ -29,9 +29,9 @@ import javafx.scene.web.WebView;
 import javafx.stage.Stage;
 
 class SettingsManager {
-  private static final AtomicReference<Settings> settings = new AtomicReference<Settings>();
   private static final AtomicBoolean platformInitialized = new AtomicBoolean();
   private static final AtomicBoolean monocle = new AtomicBoolean();
+  private static final Object launchLock = new Object();
 
   static boolean isMonocle() {
     if (!platformInitialized.get()) {
@@ -41,14 +41,16 @@ class SettingsManager {
   }
 
   static Settings settings() {
-    return settings.get();
+    return Session.current().settings();
   }
 
+  /**
+   * Registers settings for the current session.
+   */
   static void register(final Settings settings) {
-    SettingsManager.settings.set(settings);
+    Session.current().updateSettings(settings);
     if (settings != null) {
       LogsServer.updateSettings();
-      StreamConnection.updateSettings();
 
       if (settings.headless() && platformInitialized.compareAndSet(false, true)) {
         monocle.set(true);
@@ -89,35 +91,43 @@ class SettingsManager {
   static void register(
       final AtomicReference<Stage> stage,
       final AtomicReference<WebView> view) {
-    ProxyAuth.add(settings.get().proxy());
-    if (isMonocle() &&
-        com.sun.glass.ui.Application.GetApplication() == null) {
-      new Thread(() -> {
-        try {
-          Application.launch(App.class,
-              new String[] {
-                  Integer.toString(settings.get().screenWidth()),
-                  Integer.toString(settings.get().screenHeight()),
-                  Boolean.toString(isMonocle()) });
-        } catch (Throwable t) {
-          LogsServer.instance().exception(t);
-        }
-      }).start();
-    } else {
-      final App app = new App();
-      app.init(
-          settings.get().screenWidth(), settings.get().screenHeight(),
-          isMonocle());
-      AppThread.exec(() -> {
-        try {
-          app.start();
-        } catch (Throwable t) {
-          LogsServer.instance().exception(t);
-        }
-        return null;
-      });
+    final Settings settings = settings();
+    final Session session = Session.current();
+    ProxyAuth.add(settings.proxy());
+    //windows of several sessions may be opened concurrently, but the toolkit is launched only once
+    synchronized (launchLock) {
+      if (isMonocle() &&
+          com.sun.glass.ui.Application.GetApplication() == null) {
+        new Thread(() -> {
+          try {
+            Application.launch(App.class,
+                new String[] {
+                    Integer.toString(settings.screenWidth()),
+                    Integer.toString(settings.screenHeight()),
+                    Boolean.toString(isMonocle()),
+                    session.id() });
+          } catch (Throwable t) {
+            LogsServer.instance().exception(t);
+          }
+        }).start();
+        stage.set(App.getStage());
+        view.set(App.getView());
+      } else {
+        final App app = new App();
+        app.init(
+            settings.screenWidth(), settings.screenHeight(),
+            isMonocle(), session);
+        AppThread.exec(() -> {
+          try {
+            app.start();
+          } catch (Throwable t) {
+            LogsServer.instance().exception(t);
+          }
+          return null;
+        });
+        stage.set(app.stage());
+        view.set(app.view());
+      }
     }
-    stage.set(App.getStage());
-    view.set(App.getView());
   }
 }
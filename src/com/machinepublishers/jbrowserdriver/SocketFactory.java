@@ -82,7 +82,7 @@ class SocketFactory extends RMISocketFactory implements Serializable {
   private boolean holdsLock() {
     synchronized (locks) {
       for (SocketLock lock : locks) {
-        if (Thread.holdsLock(lock)) {
+        if (lock.isHeldByCurrentThread()) {
           return true;
         }
       }
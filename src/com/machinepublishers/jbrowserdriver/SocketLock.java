@@ -19,14 +19,59 @@ package com.machinepublishers.jbrowserdriver;
 
 import java.io.Serializable;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 class SocketLock implements Serializable {
   final AtomicBoolean expired = new AtomicBoolean();
+  private final ReentrantLock lock = new ReentrantLock();
+  transient volatile Session session;
 
-  SocketLock validated() {
+  /**
+   * Locks this browser and binds the calling thread to its session, until the returned binding is closed.
+   */
+  Binding validated() {
     if (expired.get()) {
       throw new IllegalStateException("Operation attempted, but browser already quit.");
     }
-    return this;
+    lock.lock();
+    return new Binding(true);
+  }
+
+  /**
+   * Binds the calling thread to this browser's session without locking it, until the returned binding is closed.
+   */
+  Binding bound() {
+    return new Binding(false);
+  }
+
+  boolean isHeldByCurrentThread() {
+    return lock.isHeldByCurrentThread();
+  }
+
+  /**
+   * Restores the session the thread was bound to before, and unlocks the browser if it was locked.
+   */
+  class Binding implements AutoCloseable {
+    private final boolean locked;
+    private final Session bound = session;
+    private final Session prev;
+
+    private Binding(boolean locked) {
+      this.locked = locked;
+      this.prev = bound == null ? null : Session.bind(bound);
+    }
+
+    @Override
+    public void close() {
+      try {
+        if (bound != null) {
+          Session.bind(prev);
+        }
+      } finally {
+        if (locked) {
+          lock.unlock();
+        }
+      }
+    }
   }
 }
@@ -0,0 +1,101 @@
+/*
+ * jBrowserDriver (TM)
+ * Copyright (C) 2014-2016 jBrowserDriver committers
+ * https://github.com/MachinePublishers/jBrowserDriver
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinepublishers.jbrowserdriver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.impl.client.cache.CachingHttpClientBuilder;
+import org.apache.http.impl.execchain.ClientExecChain;
+
+/**
+ * Caching client builder which rewrites the caching headers of responses from hosts whose {@link CachePolicy}
+ * allows stale responses, before the cache sees them.
+ * <p>
+ * Directives which forbid storing or reusing a response (<code>no-cache</code>, <code>no-store</code>,
+ * <code>private</code>, and the revalidation directives) are dropped, and <code>stale-while-revalidate</code>
+ * is set to the policy's maximum staleness. The cache then serves such a response until it's that stale,
+ * revalidating it in the background each time it's served stale.
+ */
+class StaleCachingClientBuilder extends CachingHttpClientBuilder {
+  private static final Set<String> overridden = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+      new String[] { "no-cache", "no-store", "private", "must-revalidate", "proxy-revalidate", "stale-while-revalidate" })));
+  private final Settings settings;
+  private final ClientExecChain transport;
+
+  /**
+   * @param transport
+   *          sends requests in place of HttpClient's main execution stage, or null to use it
+   */
+  StaleCachingClientBuilder(Settings settings, ClientExecChain transport) {
+    this.settings = settings;
+    this.transport = transport;
+  }
+
+  @Override
+  protected ClientExecChain decorateMainExec(ClientExecChain mainExec) {
+    ClientExecChain exec = transport == null ? mainExec : transport;
+    return super.decorateMainExec((route, request, context, execAware) -> {
+      CloseableHttpResponse response = exec.execute(route, request, context, execAware);
+      if ("GET".equals(request.getRequestLine().getMethod())) {
+        long maxStale = settings.cachePolicy(route.getTargetHost().getHostName()).maxStale();
+        if (maxStale > 0) {
+          allowStale(response, maxStale);
+        }
+      }
+      return response;
+    });
+  }
+
+  private static void allowStale(HttpResponse response, long maxStale) {
+    List<String> directives = new ArrayList<String>();
+    boolean maxAge = false;
+    for (Header header : response.getHeaders("Cache-Control")) {
+      for (HeaderElement element : header.getElements()) {
+        String name = element.getName().toLowerCase(Locale.ENGLISH);
+        if (!overridden.contains(name)) {
+          maxAge |= "max-age".equals(name) || "s-maxage".equals(name);
+          String value = element.getValue();
+          directives.add(value == null ? name
+              : name + "=" + (StringUtils.containsAny(value, ", ;=\"") ? "\"" + value.replace("\"", "") + "\"" : value));
+        }
+      }
+    }
+    if (!maxAge && response.getFirstHeader("Expires") == null) {
+      directives.add("max-age=0");
+    }
+    directives.add("stale-while-revalidate=" + maxStale);
+    response.removeHeaders("Pragma");
+    response.setHeader("Cache-Control", StringUtils.join(directives, ", "));
+    if (response.getFirstHeader("Date") == null) {
+      response.setHeader("Date", DateUtils.formatDate(new Date()));
+    }
+  }
+}
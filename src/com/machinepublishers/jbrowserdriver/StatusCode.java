@@ -17,20 +17,58 @@
  */
 package com.machinepublishers.jbrowserdriver;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javafx.application.Platform;
+
 class StatusCode {
   private final AtomicInteger statusCode = new AtomicInteger(-1);
+  private final List<Runnable> parked = new ArrayList<Runnable>();
 
   void reset() {
-    statusCode.set(-1);
+    set(-1);
   }
 
+  /**
+   * Sets the status code. When a page load completes (i.e., the code becomes non-zero)
+   * any browser actions parked while the load was in progress are posted to the FX thread.
+   */
   void set(int statusCode) {
-    this.statusCode.set(statusCode);
+    synchronized (this) {
+      this.statusCode.set(statusCode);
+      if (statusCode != 0 && !parked.isEmpty()) {
+        for (Runnable action : parked) {
+          Platform.runLater(action);
+        }
+        parked.clear();
+      }
+    }
   }
 
   int get() {
     return statusCode.get();
   }
+
+  /**
+   * Parks an action until the page load in progress completes.
+   *
+   * @return <code>false</code> if no page load is in progress and the action was not parked
+   */
+  boolean park(Runnable action) {
+    synchronized (this) {
+      if (statusCode.get() == 0) {
+        parked.add(action);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  void unpark(Runnable action) {
+    synchronized (this) {
+      parked.remove(action);
+    }
+  }
 }
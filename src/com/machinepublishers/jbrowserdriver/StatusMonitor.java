@@ -18,47 +18,108 @@
 package com.machinepublishers.jbrowserdriver;
 
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Tracks the connections and redirects of the current page so its HTTP status can be found.
+ * <p>
+ * Called concurrently from connection threads and the FX thread, so it uses concurrent maps rather than one lock.
+ * Each map holds at most {@link StatusMonitor#MAX_ENTRIES}, dropping the oldest entries beyond that,
+ * so a long-lived page which never navigates doesn't grow them without limit.
+ * Dropped connections are closed unless the page is still reading their responses
+ * (see {@link StreamConnection#closeIfUnread()}).
+ */
 class StatusMonitor {
-  private static final StatusMonitor instance = new StatusMonitor();
-  private final Object lock = new Object();
-  private final Map<String, StreamConnection> connections = new HashMap<String, StreamConnection>();
-  private final Map<String, Boolean> primaryDocuments = new HashMap<String, Boolean>();
-  private final Set<String> discarded = new HashSet<String>();
-  private final Map<String, String> redirects = new HashMap<String, String>();
-  private final List<String> startedUrls = new ArrayList<String>();
+  static final int MAX_ENTRIES = 4096;
+  private final Bounded<StreamConnection> connections = new Bounded<StreamConnection>() {
+    @Override
+    void evicted(String key, StreamConnection value) {
+      value.closeIfUnread();
+    }
+  };
+  private final Bounded<Boolean> primaryDocuments = new Bounded<Boolean>();
+  private final Bounded<Boolean> discarded = new Bounded<Boolean>();
+  private final Bounded<String> redirects = new Bounded<String>();
+  private final ConcurrentSkipListMap<Long, String> startedWithConnection = new ConcurrentSkipListMap<Long, String>();
+  private final Bounded<Long> started = new Bounded<Long>() {
+    @Override
+    void evicted(String key, Long value) {
+      startedWithConnection.remove(value);
+    }
+  };
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * Concurrent map which drops its oldest keys once it holds more than {@link StatusMonitor#MAX_ENTRIES}.
+   */
+  private static class Bounded<V> {
+    private final Map<String, V> map = new ConcurrentHashMap<String, V>();
+    private final Queue<String> order = new ConcurrentLinkedQueue<String>();
+
+    V get(String key) {
+      return key == null ? null : map.get(key);
+    }
+
+    V put(String key, V value) {
+      V prev = map.put(key, value);
+      if (prev == null) {
+        order.add(key);
+        while (map.size() > MAX_ENTRIES) {
+          String eldest = order.poll();
+          if (eldest == null) {
+            break;
+          }
+          V evicted = map.remove(eldest);
+          if (evicted != null) {
+            evicted(eldest, evicted);
+          }
+        }
+      }
+      return prev;
+    }
+
+    void evicted(String key, V value) {}
+
+    Iterable<V> values() {
+      return map.values();
+    }
+
+    void clear() {
+      map.clear();
+      order.clear();
+    }
+  }
 
   static StatusMonitor instance() {
-    return instance;
+    return Session.current().statusMonitor();
   }
 
+  /**
+   * URLs which differ only by fragment or a trailing slash are the same.
+   * The common case, a URL without either, is returned as is.
+   */
   private static String canonicalUrl(String url) {
     if (url == null) {
       return null;
     }
-    int fragmentIndex = url.indexOf("#");
-    url = fragmentIndex > -1 ? url.substring(0, fragmentIndex) : url;
-    return url.endsWith("/") ? url : url + "/";
+    int fragmentIndex = url.indexOf('#');
+    int end = fragmentIndex > -1 ? fragmentIndex : url.length();
+    end = end > 0 && url.charAt(end - 1) == '/' ? end - 1 : end;
+    return end == url.length() ? url : url.substring(0, end);
   }
 
   boolean isPrimaryDocument(boolean requireMainFrame, String url) {
-    synchronized (lock) {
-      String canonicalUrl = canonicalUrl(url);
-      return primaryDocuments.containsKey(canonicalUrl)
-          && (!requireMainFrame || primaryDocuments.get(canonicalUrl));
-    }
+    Boolean mainFrame = primaryDocuments.get(canonicalUrl(url));
+    return mainFrame != null && (!requireMainFrame || mainFrame);
   }
 
   boolean isDiscarded(String url) {
-    synchronized (lock) {
-      return discarded.contains(canonicalUrl(url));
-    }
+    return discarded.get(canonicalUrl(url)) != null;
   }
 
   void addRedirect(String original, String redirected) {
@@ -67,48 +128,52 @@ class StatusMonitor {
     if (canonicalOriginal != null
         && canonicalRedirected != null
         && !canonicalOriginal.equals(canonicalRedirected)) {
-      synchronized (lock) {
-        redirects.put(canonicalRedirected, original);
-      }
+      redirects.put(canonicalRedirected, original);
     }
   }
 
   String originalFromRedirect(String redirected) {
-    synchronized (lock) {
-      return redirects.get(canonicalUrl(redirected));
-    }
+    return redirects.get(canonicalUrl(redirected));
   }
 
   void monitor(String url) {
-    synchronized (lock) {
-      startedUrls.add(canonicalUrl(url));
+    String canonicalUrl = canonicalUrl(url);
+    Long seq = sequence.incrementAndGet();
+    Long prev = started.put(canonicalUrl, seq);
+    if (prev != null) {
+      startedWithConnection.remove(prev);
+    }
+    if (connections.get(canonicalUrl) != null) {
+      startedWithConnection.put(seq, canonicalUrl);
     }
   }
 
   void addPrimaryDocument(boolean mainFrame, String url) {
-    synchronized (lock) {
-      primaryDocuments.put(canonicalUrl(url), mainFrame);
-    }
+    primaryDocuments.put(canonicalUrl(url), mainFrame);
   }
 
   void monitor(URL url, StreamConnection conn) {
-    synchronized (lock) {
-      connections.put(canonicalUrl(url.toExternalForm()), conn);
+    String canonicalUrl = canonicalUrl(url.toExternalForm());
+    connections.put(canonicalUrl, conn);
+    Long seq = started.get(canonicalUrl);
+    if (seq != null) {
+      startedWithConnection.put(seq, canonicalUrl);
     }
   }
 
   void addDiscarded(String url) {
-    synchronized (lock) {
-      discarded.add(canonicalUrl(url));
-    }
+    discarded.put(canonicalUrl(url), Boolean.TRUE);
   }
 
   int status(String url) {
-    StreamConnection conn = null;
-    synchronized (lock) {
-      conn = connections.get(canonicalUrl(url));
-      for (int i = startedUrls.size() - 1; conn == null && i > -1; i--) {
-        conn = connections.get(startedUrls.get(i));
+    StreamConnection conn = connections.get(canonicalUrl(url));
+    if (conn == null) {
+      //fall back to the most recently started URL which has a connection
+      for (String startedUrl : startedWithConnection.descendingMap().values()) {
+        conn = connections.get(startedUrl);
+        if (conn != null) {
+          break;
+        }
       }
     }
     int code = 499;
@@ -124,16 +189,15 @@ class StatusMonitor {
   }
 
   void clear() {
-    synchronized (lock) {
-      for (StreamConnection conn : connections.values()) {
-        Util.close(conn);
-      }
-      StreamConnection.cleanUp();
-      connections.clear();
-      primaryDocuments.clear();
-      discarded.clear();
-      redirects.clear();
-      startedUrls.clear();
+    for (StreamConnection conn : connections.values()) {
+      Util.close(conn);
     }
+    StreamConnection.cleanUp();
+    connections.clear();
+    primaryDocuments.clear();
+    discarded.clear();
+    redirects.clear();
+    started.clear();
+    startedWithConnection.clear();
   }
 }
@@ -17,14 +17,12 @@
  */
 package com.machinepublishers.jbrowserdriver;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
@@ -71,13 +69,11 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.util.EntityUtils;
 
-import com.sun.webkit.network.CookieManager;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class StreamConnection extends HttpURLConnection implements Closeable {
- private static final CookieStore cookieStore = (CookieStore) CookieManager.getDefault();
  private static final File attachmentsDir;
  private static final File mediaDir;
  static {
@@ -97,8 +93,6 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
  private static final Set<String> ignoredHeaders = Collections
   .unmodifiableSet(new HashSet(Arrays.asList(new String[] { "cookie", "pragma", "cache-control", "content-length" })));
  private static final Pattern invalidUrlChar = Pattern.compile("[^-A-Za-z0-9._~:/?#\\[\\]@!$&'()*+,;=]");
- private static final Set<String> adHosts = new HashSet<String>();
- private static final AtomicReference<StreamConnectionClient> client = new AtomicReference<StreamConnectionClient>();
  private static final Set<String> mediaExtensions = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(new String[] { ".svg",
   ".gif", ".jpeg", ".jpg", ".png", ".ico", ".webm", ".mp4", ".ogg", ".ogv", ".mp3", ".aac", ".wav", ".swf", ".woff", ".otf", ".ttf" })));
 
@@ -119,36 +113,22 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
  private final AtomicReference<HttpClientContext> context = new AtomicReference<HttpClientContext>(HttpClientContext.create());
  private final AtomicReference<HttpRequestBase> req = new AtomicReference<HttpRequestBase>();
  private final AtomicBoolean contentEncodingRemoved = new AtomicBoolean();
+ private final AtomicBoolean contentLengthRemoved = new AtomicBoolean();
  private final AtomicLong contentLength = new AtomicLong(-1);
  private final AtomicReference<ByteArrayOutputStream> reqData = new AtomicReference<ByteArrayOutputStream>(new ByteArrayOutputStream());
+ private final AtomicReference<Session> session = new AtomicReference<Session>(requester());
 
- static {
-  if (SettingsManager.settings().blockAds()) {
-   BufferedReader reader = null;
-   try {
-    reader = new BufferedReader(
-     new InputStreamReader(StreamConnection.class.getResourceAsStream("/com/machinepublishers/jbrowserdriver/ad-hosts.txt")));
-    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-     adHosts.add(line);
-    }
-   } catch (Throwable t) {
-    LogsServer.instance().exception(t);
-   } finally {
-    Util.close(reader);
-   }
-  }
- }
-
- static void updateSettings() {
-  StreamConnectionClient prevClient = client.get();
-  if (prevClient != null) {
-   prevClient.shutDown();
-  }
-  client.set(new StreamConnectionClient());
+ /**
+  * @return the session of the page that opened this connection, since WebKit opens connections
+  *         in the access control context of the page which requested them
+  */
+ private static Session requester() {
+  Session page = Session.ofPage();
+  return page == null ? Session.current() : page;
  }
 
  static File cacheDir() {
-  return client.get().cacheDir();
+  return Session.current().client().cacheDir();
  }
 
  static File attachmentsDir() {
@@ -160,19 +140,51 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
  }
 
  private boolean isBlocked(String host) {
-  if (SettingsManager.settings().blockAds() && !adHosts.isEmpty()) {
-   host = host.toLowerCase();
-   while (host.contains(".")) {
-    if (adHosts.contains(host)) {
-     LogsServer.instance().trace("Ad blocked: " + host);
-     host = null;
-     return true;
+  if (blocks(host)) {
+   LogsServer.instance().trace("Ad blocked: " + host);
+   return true;
+  }
+  return false;
+ }
+
+ private boolean blocks(String host) {
+  Blocklist blocklist = session.get().blocklist();
+  if (blocklist.allows(host)) {
+   return false;
+  }
+  return (SettingsManager.settings().blockAds() && HostMatcher.adHosts().matches(host)) || blocklist.blocks(host);
+ }
+
+ /**
+  * Looks up hosts in the background, except those which would be blocked.
+  */
+ void prefetch(Collection<String> hosts) {
+  StreamConnectionClient client = session.get().client();
+  if (client != null) {
+   List<String> allowed = new ArrayList<String>(hosts.size());
+   for (String host : hosts) {
+    if (!blocks(host)) {
+     allowed.add(host);
     }
-    host = host.substring(host.indexOf('.') + 1);
    }
-   host = null;
+   client.dns().prefetch(allowed);
+  }
+ }
+
+ /**
+  * Opens connections to origins ahead of their requests, except those which would be blocked.
+  */
+ void preconnect(Collection<HttpHost> origins) {
+  StreamConnectionClient client = session.get().client();
+  if (client != null) {
+   List<HttpHost> allowed = new ArrayList<HttpHost>(origins.size());
+   for (HttpHost origin : origins) {
+    if (!blocks(origin.getHostName())) {
+     allowed.add(origin);
+    }
+   }
+   client.preconnect(allowed);
   }
-  return false;
  }
 
  boolean isMedia() {
@@ -236,7 +248,7 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
     }
    }
   }
-  cookieStore.addCsrfHeaders(settings, req);
+  session.get().cookieStore().addCsrfHeaders(settings, req);
  }
 
  ///////////////////////////////////////////////////////////
@@ -248,6 +260,8 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
   */
  @Override
  public void connect() throws IOException {
+  //route logging, settings, and status of this request to the browser that made it
+  Session prev = Session.bind(session.get());
   try {
    if (connected.compareAndSet(false, true)) {
     if (StatusMonitor.instance().isDiscarded(urlString)) {
@@ -302,7 +316,7 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
         config.get().setProxy(new HttpHost(proxy.host(), proxy.port()));
        }
       }
-      context.get().setCookieStore(cookieStore);
+      context.get().setCookieStore(session.get().cookieStore().forHost(uri.getHost()));
       context.get().setRequestConfig(config.get().build());
       StatusMonitor.instance().monitor(url, this);
      }
@@ -310,10 +324,13 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
    }
   } catch (Throwable t) {
    throw new IOException(t.getMessage() + ": " + urlString, t);
+  } finally {
+   Session.bind(prev);
   }
  }
 
  private void exec() throws IOException {
+  Session prev = Session.bind(session.get());
   try {
    if (exec.compareAndSet(false, true)) {
     connect();
@@ -325,7 +342,7 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
      } else if ("PATCH".equals(method.get())) {
       ((HttpPatch) req.get()).setEntity(new ByteArrayEntity(reqData.get().toByteArray()));
      }
-     response.set(client.get().execute(req.get(), context.get()));
+     response.set(session.get().client().execute(req.get(), context.get()));
      if (response.get() != null && response.get().getEntity() != null) {
       entity.set(response.get().getEntity());
       response.get().setHeader("Cache-Control", "no-store, no-cache");
@@ -357,6 +374,8 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
    }
   } catch (Throwable t) {
    throw new IOException(t.getMessage() + ": " + urlString, t);
+  } finally {
+   Session.bind(prev);
   }
  }
 
@@ -383,8 +402,22 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
   }
  }
 
+ /**
+  * Closes this connection unless its response was handed to the page, in which case
+  * the connection is closed when the page closes the response stream. Closing it here
+  * would drain a response the page may still be reading, such as an event stream.
+  */
+ void closeIfUnread() {
+  if (!consumed.get()) {
+   Util.close(this);
+  }
+ }
+
  static void cleanUp() {
-  client.get().cleanUp();
+  StreamConnectionClient client = Session.current().client();
+  if (client != null) {
+   client.cleanUp();
+  }
  }
 
  /**
@@ -392,20 +425,28 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
   */
  @Override
  public InputStream getInputStream() throws IOException {
-  exec();
-  if (consumed.compareAndSet(false, true)) {
-   if (entity.get() != null) {
-    try {
-     InputStream entityStream = entity.get().getContent();
-     if (entityStream != null && !skip.get()) {
-      return ResponseHandler.handleResponse(this, entityStream);
+  Session prev = Session.bind(session.get());
+  try {
+   exec();
+   if (consumed.compareAndSet(false, true)) {
+    if (entity.get() != null) {
+     try {
+      InputStream entityStream = entity.get().getContent();
+      if (entityStream != null && !skip.get()) {
+       //the connection is closed when the response stream is closed
+       return ResponseHandler.handleResponse(this, entityStream);
+      }
+      close();
+     } catch (Throwable t) {
+      close();
+      throw t;
      }
-    } finally {
-     close();
     }
    }
+   return new ByteArrayInputStream(new byte[0]);
+  } finally {
+   Session.bind(prev);
   }
-  return new ByteArrayInputStream(new byte[0]);
  }
 
  /**
@@ -494,6 +535,9 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
   */
  @Override
  public int getContentLength() {
+  if (contentLengthRemoved.get()) {
+   return -1;
+  }
   if (contentLength.get() != -1) {
    return (int) contentLength.get();
   }
@@ -505,6 +549,9 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
   */
  @Override
  public long getContentLengthLong() {
+  if (contentLengthRemoved.get()) {
+   return -1;
+  }
   if (contentLength.get() != -1) {
    return contentLength.get();
   }
@@ -512,10 +559,16 @@ public class StreamConnection extends HttpURLConnection implements Closeable {
  }
 
  public void setContentLength(long contentLength) {
+  contentLengthRemoved.set(false);
   this.contentLength.set(contentLength);
   response.get().setHeader("Content-Length", Long.toString(contentLength));
  }
 
+ public void removeContentLength() {
+  response.get().removeHeaders("Content-Length");
+  contentLengthRemoved.set(true);
+ }
+
  /**
   * {@inheritDoc}
   */
@@ -31,10 +31,17 @@ import java.security.KeyStore;
 import java.security.cert.CertificateFactory;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,16 +49,22 @@ import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
 
+import org.apache.http.Header;
 import org.apache.http.HttpClientConnection;
 import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.cache.CacheResponseStatus;
+import org.apache.http.client.cache.HttpCacheContext;
+import org.apache.http.client.cache.HttpCacheStorage;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
@@ -63,6 +76,7 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.cache.CacheConfig;
 import org.apache.http.impl.client.cache.CachingHttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.execchain.ClientExecChain;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpRequestExecutor;
 import org.apache.http.ssl.SSLContexts;
@@ -77,9 +91,14 @@ public class StreamConnectionClient {
   .unmodifiableSet(new HashSet<String>(Arrays.asList(new String[] { "POST", "PUT", "DELETE", "PATCH" })));
  private static final Registry<CookieSpecProvider> cookieProvider = RegistryBuilder.<CookieSpecProvider>create()
   .register("custom", new LaxCookieSpecProvider()).build();
+ private static final String[] coalescingHeaders = new String[] { "Accept", "Accept-Encoding", "Accept-Language",
+  "Authorization", "Origin", "If-None-Match", "If-Modified-Since" };
+ private static final long COALESCE_WAIT_MS = 30 * 1000;
  private static Pattern pemBlock = Pattern.compile("-----BEGIN CERTIFICATE-----\\s*(.*?)\\s*-----END CERTIFICATE-----", Pattern.DOTALL);
 
- private final HttpCache httpCache;
+ private final HttpCacheStorage httpCache;
+ private final HttpCacheStorage diskCache;
+ private final MemoryHttpCache memoryCache;
  private final File cacheDir;
  private final CacheConfig cacheConfig;
  private final Registry<ConnectionSocketFactory> registry;
@@ -87,8 +106,26 @@ public class StreamConnectionClient {
  private final CloseableHttpClient client;
  private final CloseableHttpClient cachingClient;
  private final FileRemover shutdownHook;
+ private final List<Object> fingerprint;
+ private final SSLContext sslContext;
+ private final ConnectionStats stats = new ConnectionStats();
+ private final DnsCache dns;
+ private final Preconnector preconnector;
+ private final Http2Transport http2;
+ private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<String, CompletableFuture<Void>>();
 
  public StreamConnectionClient() {
+  this(null);
+ }
+
+ /**
+  * @param prev
+  *          client being replaced, whose SSL context is kept if the SSL settings haven't changed
+  */
+ StreamConnectionClient(StreamConnectionClient prev) {
+  fingerprint = fingerprint(SettingsManager.settings());
+  sslContext = prev != null && prev.fingerprint.get(0).equals(fingerprint.get(0))
+   ? prev.sslContext : sslContext();
   File cacheDirTmp = SettingsManager.settings().cacheDir();
   FileRemover shutdownHookTmp = null;
   try {
@@ -104,29 +141,81 @@ public class StreamConnectionClient {
   }
   shutdownHook = shutdownHookTmp;
   cacheDir = cacheDirTmp;
-  httpCache = new HttpCache(cacheDirTmp);
+  HttpCacheStorage diskCacheTmp = null;
+  if (SettingsManager.settings().cacheStore() == Settings.CacheStore.SEGMENTED) {
+   try {
+    diskCacheTmp = new SegmentedHttpCache(cacheDirTmp);
+   } catch (Throwable t) {
+    LogsServer.instance().exception(t);
+   }
+  }
+  diskCache = diskCacheTmp == null ? new HttpCache(cacheDirTmp) : diskCacheTmp;
+  memoryCache = SettingsManager.settings().cacheMemorySize() > 0
+   ? new MemoryHttpCache(diskCache, SettingsManager.settings().cacheMemorySize(),
+    SettingsManager.settings().cacheMemoryPolicy(), SettingsManager.settings().cacheEntries())
+   : null;
+  HttpCacheStorage httpCacheTmp = memoryCache == null ? diskCache : memoryCache;
+  boolean customCache = !SettingsManager.settings().cachePolicy(null).isStandard()
+   || !SettingsManager.settings().cachePolicies().isEmpty();
+  httpCache = customCache ? new NormalizedHttpCache(httpCacheTmp, SettingsManager.settings()) : httpCacheTmp;
 
   cacheConfig = CacheConfig.custom().setSharedCache(false).setMaxCacheEntries(SettingsManager.settings().cacheEntries())
    .setMaxObjectSize(SettingsManager.settings().cacheEntrySize()).build();
-  ConnectionSocketFactory sslSocketFactory = SettingsManager.settings().hostnameVerification() ? new SslSocketFactory(sslContext())
-   : new SslSocketWithoutHostnameVerificationFactory(sslContext());
-  registry = RegistryBuilder.<ConnectionSocketFactory>create().register("https", sslSocketFactory).register("http", new SocketFactory())
-   .build();
-  manager = new PoolingHttpClientConnectionManager(registry);
+  ConnectionSocketFactory sslSocketFactory = SettingsManager.settings().hostnameVerification()
+   ? new SslSocketFactory(sslContext, stats) : new SslSocketWithoutHostnameVerificationFactory(sslContext, stats);
+  registry = RegistryBuilder.<ConnectionSocketFactory>create().register("https", sslSocketFactory)
+   .register("http", new SocketFactory(stats)).build();
+  dns = new DnsCache(SettingsManager.settings().hosts());
+  manager = new PoolingHttpClientConnectionManager(registry, dns);
   manager.setDefaultMaxPerRoute(SettingsManager.settings().maxRouteConnections());
   manager.setMaxTotal(SettingsManager.settings().maxConnections());
-  client = clientBuilderHelper(HttpClientBuilder.create(), manager);
-  cachingClient = clientBuilderHelper(CachingHttpClientBuilder.create().setCacheConfig(cacheConfig).setHttpCacheStorage(httpCache),
-   manager);
+  preconnector = new Preconnector(manager);
+  http2 = SettingsManager.settings().http2() ? new Http2Transport(SettingsManager.settings(), sslContext, dns, stats) : null;
+  client = clientBuilderHelper(new HttpClientBuilder() {
+   @Override
+   protected ClientExecChain decorateMainExec(ClientExecChain mainExec) {
+    return http2 == null ? mainExec : http2;
+   }
+  }, manager, preconnector);
+  cachingClient = clientBuilderHelper((customCache ? new StaleCachingClientBuilder(SettingsManager.settings(), http2)
+   : new CachingHttpClientBuilder() {
+    @Override
+    protected ClientExecChain decorateMainExec(ClientExecChain mainExec) {
+     return super.decorateMainExec(http2 == null ? mainExec : http2);
+    }
+   }).setCacheConfig(cacheConfig).setHttpCacheStorage(httpCache), manager, preconnector);
  }
 
- private static CloseableHttpClient clientBuilderHelper(HttpClientBuilder builder, PoolingHttpClientConnectionManager manager) {
+ /**
+  * Settings which the connection pool, SSL context, or caches depend on. The SSL setting is first.
+  */
+ private static List<Object> fingerprint(Settings settings) {
+  ProxyConfig proxy = settings.proxy();
+  return Arrays.asList(new Object[] { String.valueOf(settings.ssl()), settings.hostnameVerification(),
+    proxy == null || proxy.directConnection() ? null : proxy.type(), proxy == null ? null : proxy.hostAndPort(),
+    proxy == null ? null : proxy.user(), proxy == null ? null : proxy.password(), settings.getLocalIp(),
+    settings.socketTimeout(), settings.connectTimeout(), settings.connectionReqTimeout(),
+    settings.maxRouteConnections(), settings.maxConnections(), settings.cacheDir(), settings.cacheStore(),
+    settings.cacheEntries(), settings.cacheEntrySize(), settings.cacheMemorySize(), settings.cacheMemoryPolicy(),
+    settings.hosts(), settings.cachePolicy(null), settings.cachePolicies(), settings.http2() });
+ }
+
+ /**
+  * @return whether this client was built with the same network settings, so it can be kept rather than replaced
+  */
+ boolean matches(Settings settings) {
+  return fingerprint.equals(fingerprint(settings));
+ }
+
+ private static CloseableHttpClient clientBuilderHelper(HttpClientBuilder builder, PoolingHttpClientConnectionManager manager,
+  Preconnector preconnector) {
   return builder.disableRedirectHandling().disableAutomaticRetries().setDefaultCookieSpecRegistry(cookieProvider)
    .setConnectionManager(manager).setRequestExecutor(new HttpRequestExecutor() {
     @Override
     protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
      throws IOException, HttpException {
      request.removeHeaders("Via");
+     preconnector.sending(conn);
      return super.doSendRequest(request, conn, context);
     }
    }).setDefaultCredentialsProvider(ProxyAuth.instance()).setConnectionReuseStrategy(DefaultConnectionReuseStrategy.INSTANCE).build();
@@ -149,18 +238,102 @@ public class StreamConnectionClient {
   return cacheDir;
  }
 
+ DnsCache dns() {
+  return dns;
+ }
+
+ /**
+  * Opens connections to origins ahead of their requests. Does nothing over HTTP/2, whose connections are
+  * opened by the HTTP/2 transport rather than the pool preconnects go through.
+  */
+ void preconnect(Collection<HttpHost> origins) {
+  if (http2 != null) {
+   return;
+  }
+  preconnector.preconnect(origins, SettingsManager.settings().getLocalIp(), SettingsManager.settings().connectTimeout());
+ }
+
  void cleanUp() {
+  preconnector.expire(false);
   manager.closeExpiredConnections();
   manager.closeIdleConnections(30, TimeUnit.SECONDS);
  }
 
+ /**
+  * Logs connection, DNS, preconnect, and memory cache stats at trace level.
+  */
+ /**
+  * @return the in-memory cache in front of the disk cache, or null if it's disabled
+  */
+ MemoryHttpCache memoryCache() {
+  return memoryCache;
+ }
+
+ void logStats() {
+  LogsServer.instance().trace(stats.toString());
+  LogsServer.instance().trace(dns.toString());
+  LogsServer.instance().trace(preconnector.toString());
+  if (memoryCache != null) {
+   LogsServer.instance().trace(memoryCache.toString());
+  }
+ }
+
  void shutDown() {
   manager.shutdown();
+  if (http2 != null) {
+   http2.shutDown();
+  }
+  preconnector.expire(true);
+  logStats();
+  if (diskCache instanceof SegmentedHttpCache) {
+   ((SegmentedHttpCache) diskCache).close();
+  }
  }
 
  CloseableHttpResponse execute(HttpRequestBase req, HttpClientContext context) throws ClientProtocolException, IOException {
-  return !SettingsManager.settings().cache() || nonCachedMethods.contains(req.getMethod()) ? client.execute(req, context)
-   : cachingClient.execute(req, context);
+  stats.request();
+  if (!SettingsManager.settings().cache() || nonCachedMethods.contains(req.getMethod())) {
+   return client.execute(req, context);
+  }
+  if (!"GET".equals(req.getMethod()) || req.getFirstHeader("Range") != null) {
+   return cachingClient.execute(req, context);
+  }
+  return coalesce(req, context);
+ }
+
+ /**
+  * Identical GETs which are in flight at the same time share one fetch. The first fetches through the cache,
+  * which stores a cacheable response before returning it, while the others wait and are then answered from the cache.
+  * A response which isn't cacheable isn't shared, so after waiting the others fetch it themselves.
+  */
+ private CloseableHttpResponse coalesce(HttpRequestBase req, HttpClientContext context) throws ClientProtocolException, IOException {
+  StringBuilder key = new StringBuilder(NormalizedHttpCache.normalize(req.getURI().toString(), SettingsManager.settings()));
+  for (String name : coalescingHeaders) {
+   Header header = req.getFirstHeader(name);
+   key.append('\n').append(header == null ? "" : header.getValue());
+  }
+  CompletableFuture<Void> flight = new CompletableFuture<Void>();
+  CompletableFuture<Void> leader = inFlight.putIfAbsent(key.toString(), flight);
+  if (leader == null) {
+   try {
+    return cachingClient.execute(req, context);
+   } finally {
+    inFlight.remove(key.toString(), flight);
+    flight.complete(null);
+   }
+  }
+  try {
+   leader.get(COALESCE_WAIT_MS, TimeUnit.MILLISECONDS);
+  } catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+  } catch (TimeoutException e) {
+   LogsServer.instance().trace("Stopped waiting on identical request: " + req.getURI());
+  } catch (Throwable t) {}
+  CloseableHttpResponse response = cachingClient.execute(req, context);
+  if (context.getAttribute(HttpCacheContext.CACHE_RESPONSE_STATUS) == CacheResponseStatus.CACHE_HIT) {
+   stats.coalesced();
+  }
+  return response;
  }
 
  private static SSLContext sslContext() {
@@ -226,35 +399,104 @@ public class StreamConnectionClient {
  }
 
  private static class SslSocketFactory extends SSLConnectionSocketFactory {
-  public SslSocketFactory(final SSLContext sslContext) {
+  private final ConnectionStats stats;
+
+  public SslSocketFactory(final SSLContext sslContext, final ConnectionStats stats) {
    super(sslContext);
+   this.stats = stats;
   }
 
   @Override
   public Socket createSocket(final HttpContext context) throws IOException {
-   return newSocket(context);
+   return newSocket(context, stats);
   }
  }
 
  private static class SslSocketWithoutHostnameVerificationFactory extends SSLConnectionSocketFactory {
-  public SslSocketWithoutHostnameVerificationFactory(final SSLContext sslContext) {
+  private final ConnectionStats stats;
+
+  public SslSocketWithoutHostnameVerificationFactory(final SSLContext sslContext, final ConnectionStats stats) {
    super(sslContext, NoopHostnameVerifier.INSTANCE);
+   this.stats = stats;
   }
 
   @Override
   public Socket createSocket(final HttpContext context) throws IOException {
-   return newSocket(context);
+   return newSocket(context, stats);
   }
  }
 
  private static class SocketFactory extends PlainConnectionSocketFactory {
+  private final ConnectionStats stats;
+
+  public SocketFactory(final ConnectionStats stats) {
+   this.stats = stats;
+  }
+
   @Override
   public Socket createSocket(final HttpContext context) throws IOException {
-   return newSocket(context);
+   return newSocket(context, stats);
+  }
+ }
+
+ /**
+  * Counts the connections opened per host against the requests made, which shows
+  * how well connections are being reused. Logged at trace level on shutdown and when a reset keeps the client.
+  * Only the first {@link ConnectionStats#MAX_HOSTS} hosts are counted separately.
+  */
+ static class ConnectionStats {
+  private static final int MAX_HOSTS = 256;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong connections = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong otherHosts = new AtomicLong();
+  private final Map<String, AtomicLong> hosts = new ConcurrentHashMap<String, AtomicLong>();
+  private final Map<String, AtomicLong> protocols = new ConcurrentHashMap<String, AtomicLong>();
+
+  void request() {
+   requests.incrementAndGet();
+  }
+
+  void coalesced() {
+   coalesced.incrementAndGet();
+  }
+
+  void connection(HttpContext context) {
+   connections.incrementAndGet();
+   Object route = context == null ? null : context.getAttribute(HttpClientContext.HTTP_ROUTE);
+   if (route instanceof HttpRoute) {
+    host(((HttpRoute) route).getTargetHost().toHostString());
+   }
+  }
+
+  /**
+   * Called by the HTTP/2 transport with each connection it opens and the protocol negotiated on it.
+   */
+  void connection(String host, String protocol) {
+   connections.incrementAndGet();
+   protocols.computeIfAbsent(String.valueOf(protocol), k -> new AtomicLong()).incrementAndGet();
+   host(host);
+  }
+
+  private void host(String host) {
+   AtomicLong count = hosts.get(host);
+   if (count == null && hosts.size() < MAX_HOSTS) {
+    count = hosts.computeIfAbsent(host, k -> new AtomicLong());
+   }
+   (count == null ? otherHosts : count).incrementAndGet();
+  }
+
+  @Override
+  public String toString() {
+   return "Connections opened: " + connections.get() + "; requests: " + requests.get() + " (" + coalesced.get()
+    + " answered by an identical request's fetch); connections per host: " + hosts
+    + (otherHosts.get() == 0 ? "" : "; connections to other hosts: " + otherHosts.get())
+    + (protocols.isEmpty() ? "" : "; connections per protocol: " + protocols);
   }
  }
 
- private static Socket newSocket(final HttpContext context) throws IOException {
+ private static Socket newSocket(final HttpContext context, final ConnectionStats stats) throws IOException {
+  stats.connection(context);
   InetSocketAddress proxySocks = (InetSocketAddress) context.getAttribute("proxy.socks.address");
   Socket socket;
   if (proxySocks != null) {
@@ -38,7 +38,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public WebElement activeElement() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return Element.constructElement(remote.activeElement(), driver, lock);
       }
     } catch (Throwable t) {
@@ -53,7 +53,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public org.openqa.selenium.Alert alert() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         return new Alert(remote.alert(), lock);
       }
     } catch (Throwable t) {
@@ -68,7 +68,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public WebDriver defaultContent() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.defaultContent();
       }
       return driver;
@@ -84,7 +84,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public WebDriver frame(int index) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.frame(index);
       }
       return driver;
@@ -100,7 +100,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public WebDriver frame(String nameOrId) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.frame(nameOrId);
       }
       return driver;
@@ -125,7 +125,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public WebDriver parentFrame() {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.parentFrame();
       }
       return driver;
@@ -141,7 +141,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public WebDriver window(String windowHandle) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.window(windowHandle);
       }
       return driver;
@@ -154,7 +154,7 @@ class TargetLocator implements WebDriver.TargetLocator {
   @Override
   public WebDriver newWindow(WindowType windowType) {
     try {
-      synchronized (lock.validated()) {
+      try (SocketLock.Binding binding = lock.validated()) {
         remote.newWindow(windowType);
       }
       return driver;
@@ -23,6 +23,7 @@ import java.io.StringWriter;
 import java.net.InetAddress;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -50,7 +51,12 @@ import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.interactions.Locatable;
 import org.openqa.selenium.logging.LogEntry;
 
+import com.machinepublishers.jbrowserdriver.ElementQuery;
+import com.machinepublishers.jbrowserdriver.ElementRow;
+import com.machinepublishers.jbrowserdriver.ImageFormat;
 import com.machinepublishers.jbrowserdriver.JBrowserDriver;
+import com.machinepublishers.jbrowserdriver.Screenshot;
+import com.machinepublishers.jbrowserdriver.SessionSnapshot;
 import com.machinepublishers.jbrowserdriver.Settings;
 
 public class Test {
@@ -341,6 +347,50 @@ public class Test {
       test(driver.findElementById("checkbox1").isSelected());
       test(!driver.findElementById("checkbox2").isSelected());
 
+      /*
+       * Element queries
+       */
+      List<WebElement> divs = driver.findElementsByCssSelector("div");
+      List<ElementRow> rows = driver.query(ElementQuery.builder().cssSelector("div")
+          .tag().text().rect().displayed().attributes("id", "data-selected").build());
+      test(rows.size() == divs.size());
+      for (int i = 0; i < rows.size() && i < divs.size(); i++) {
+        test(divs.get(i).getTagName().equals(rows.get(i).getTagName()));
+        test(divs.get(i).getText().equals(rows.get(i).getText()));
+        test(divs.get(i).getRect().equals(rows.get(i).getRect()));
+        test(divs.get(i).isDisplayed() == rows.get(i).isDisplayed());
+        test(StringUtils.equals(divs.get(i).getAttribute("id"), rows.get(i).getAttribute("id")));
+        test(StringUtils.equals(divs.get(i).getAttribute("data-selected"), rows.get(i).getAttribute("data-selected")));
+      }
+      test("test-data-attr".equals(rows.get(0).getAttribute("data-selected")));
+      test(rows.get(1).getAttributes().size() == 1);
+      rows = driver.query(ElementQuery.builder().cssSelector("a").attributes("id").offset(1).limit(2).build());
+      test(rows.size() == 2);
+      test("anchor2".equals(rows.get(0).getAttribute("id")));
+      test("anchor3".equals(rows.get(1).getAttribute("id")));
+      test(rows.get(0).getText() == null);
+      test(driver.query(ElementQuery.builder().cssSelector("a").tag().offset(100).build()).isEmpty());
+      List<WebElement> named = driver.findElementsByXPath("//div[@name='divs']");
+      rows = driver.query(ElementQuery.builder().xpath("//div[@name='divs']").text().attributes("innerText").build());
+      test(rows.size() == 2);
+      test(named.get(0).getText().equals(rows.get(0).getText()));
+      test(named.get(1).getAttribute("innerText").equals(rows.get(1).getAttribute("innerText")));
+      rows = driver.query(ElementQuery.builder().xpath("//a[contains(@href,'1')]").tag().build());
+      test(rows.size() == 1 && "a".equals(rows.get(0).getTagName()));
+      WebElement textNode = driver.findElement(By.id("text-node1"));
+      List<WebElement> children = textNode.findElements(By.cssSelector("div"));
+      rows = driver.query(ElementQuery.builder().cssSelector("div").displayed().text().build(), textNode);
+      test(rows.size() == children.size());
+      test(!rows.get(0).isDisplayed() && "".equals(rows.get(0).getText()));
+      test(rows.get(1).isDisplayed() && children.get(1).getText().equals(rows.get(1).getText()));
+      error = null;
+      try {
+        driver.query(ElementQuery.builder().xpath("!!!").tag().build());
+      } catch (WebDriverException e) {
+        error = e;
+      }
+      test(error != null);
+
       /*
        * Page source
        */
@@ -364,6 +414,35 @@ public class Test {
        * Screenshots
        */
       test(driver.getScreenshotAs(OutputType.BYTES).length > 0);
+      Screenshot screenshot = driver.getScreenshot(ImageFormat.PNG);
+      test(screenshot != null && screenshot.getBytes().length > 0);
+      test(screenshot.getWidth() == 1024 && screenshot.getHeight() == 768);
+      screenshot = driver.getScreenshot(ImageFormat.BGRA, new Rectangle(10, 20, 40, 30));
+      test(screenshot != null && screenshot.getWidth() == 30 && screenshot.getHeight() == 40);
+      test(screenshot.getBytes().length == 30 * 40 * 4);
+      screenshot = driver.getScreenshot(ImageFormat.PNG, new Rectangle(1014, 0, 20, 50));
+      test(screenshot != null && screenshot.getWidth() == 10 && screenshot.getHeight() == 20);
+      WebElement captured = driver.findElement(By.id("divtext1"));
+      screenshot = driver.getScreenshot(ImageFormat.RGBA, captured);
+      test(screenshot != null && screenshot.getBytes().length == screenshot.getWidth() * screenshot.getHeight() * 4);
+      test(Math.abs(screenshot.getWidth() - captured.getSize().getWidth()) <= 1);
+      test(Math.abs(screenshot.getHeight() - captured.getSize().getHeight()) <= 1);
+      driver.switchTo().frame("testiframe");
+      captured = driver.findElement(By.id("iframe-anchor"));
+      screenshot = driver.getScreenshot(ImageFormat.PNG, captured);
+      test(screenshot != null && screenshot.getBytes().length > 0);
+      test(Math.abs(screenshot.getWidth() - captured.getSize().getWidth()) <= 1);
+      test(Math.abs(screenshot.getHeight() - captured.getSize().getHeight()) <= 1);
+      screenshot = driver.getScreenshot(ImageFormat.JPEG, new Rectangle(10, 20, 40, 30));
+      test(screenshot != null && screenshot.getWidth() == 30 && screenshot.getHeight() == 40);
+      driver.switchTo().defaultContent();
+      error = null;
+      try {
+        driver.getScreenshot(ImageFormat.PNG, (WebElement) null);
+      } catch (WebDriverException e) {
+        error = e;
+      }
+      test(error != null);
 
       /*
        * File Input Type
@@ -468,6 +547,27 @@ public class Test {
       test("jsCookieValue3".equals(driver.manage().getCookieNamed("jsCookieName3").getValue()));
       test("jsCookieValue4".equals(driver.manage().getCookieNamed("jsCookieName4").getValue()));
 
+      /*
+       * Session export and import
+       */
+      Set<Cookie> exported = driver.manage().getCookies();
+      SessionSnapshot snapshot = driver.exportSession();
+      test(snapshot.getCookieCount() == exported.size());
+      test(driver.getCurrentUrl().equals(snapshot.getUrl()));
+      snapshot = SessionSnapshot.fromBytes(snapshot.toBytes());
+      driver.reset();
+      test(driver.manage().getCookies().isEmpty());
+      driver.importSession(snapshot);
+      test(driver.manage().getCookies().size() == exported.size());
+      for (Cookie cur : exported) {
+        Cookie imported = driver.manage().getCookieNamed(cur.getName());
+        test(imported != null && cur.getValue().equals(imported.getValue())
+            && StringUtils.equals(cur.getDomain(), imported.getDomain())
+            && StringUtils.equals(cur.getPath(), imported.getPath()));
+      }
+      driver.get(snapshot.getUrl());
+      test(driver.getStatusCode() == 200);
+
       /*
        * Window size and position
        */
@@ -560,6 +660,22 @@ public class Test {
       }
       test(error != null);
 
+      /*
+       * Cookies persisted on quit
+       */
+      driver.reset(builder.persistCookies(true).build());
+      driver.get(mainPage);
+      driver.manage().addCookie(new Cookie("persistentname", "persistentvalue", "/",
+          new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1))));
+      driver.manage().addCookie(new Cookie("sessionname", "sessionvalue"));
+      driver.quit();
+      driver = new JBrowserDriver(builder.build());
+      cookie = driver.manage().getCookieNamed("persistentname");
+      test(cookie != null && "persistentvalue".equals(cookie.getValue()));
+      test(driver.manage().getCookieNamed("sessionname") == null);
+      driver.reset(builder.persistCookies(false).build());
+      test(driver.manage().getCookieNamed("persistentname") == null);
+
       /*
        * Timeouts
        */